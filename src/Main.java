@@ -1,27 +1,113 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import commands.games.BasicStrategy;
 import commands.games.Blackjack;
 import commands.utility.RandomChallenge;
+import eventhandling.MessageCreateEventReceiver;
 import eventhandling.QuestpressoEventReceiver;
+import loadtest.WarmUp;
+import logging.Log;
+import recording.InteractionRecorder;
+import recording.RoundHistory;
+import rest.DiscordRestEndpoints;
+import rest.RestQueue;
 import unrelibrary.DiscordBot;
-import unrelibrary.formatting.GeneralFormatter;
 
 public class Main {
+    // a step of the startup that is timed on its own
+    private static interface StartupPhase {
+        public void run() throws Exception;
+    }
 
     public static void main(String[] args) {
-        DiscordBot discordBot = new DiscordBot(false, 80, false, "./data/confidential.json", true);
+        long startNanos = System.nanoTime();
+        // the data files don't depend on the bot or on each other, so they are loaded while the bot is set up
+        ExecutorService startupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        CompletableFuture<Boolean> strategyLoading = CompletableFuture.supplyAsync(
+            () -> runPhase("strategy tables", "Couldn't load the strategy tables, bots are disabled. ", () -> BasicStrategy.loadTables("./data/basicstrategy.txt")),
+            startupExecutor
+        );
+        CompletableFuture<Boolean> catalogLoading = CompletableFuture.supplyAsync(
+            () -> runPhase("challenge catalog", "Couldn't load the challenges, /randomchallenge is disabled. ", () -> RandomChallenge.loadEntries("./data/challenges.json")),
+            startupExecutor
+        );
 
-        discordBot.initialize(new QuestpressoEventReceiver());
+        DiscordBot[] discordBot = new DiscordBot[1];
+        runPhase("bot setup", "Couldn't set up the bot. ", () -> {
+            discordBot[0] = new DiscordBot(false, 80, false, "./data/confidential.json", true);
+            discordBot[0].initialize(new QuestpressoEventReceiver());
+            return;
+        });
+        if (discordBot[0] == null) {
+            startupExecutor.shutdown();
+            return;
+        }
+        // handlers only queue their rest requests, they are sent in the background within the rate limits
+        RestQueue restQueue = new RestQueue(new DiscordRestEndpoints(discordBot[0]));
+        RandomChallenge.setRestEndpoints(restQueue);
+        MessageCreateEventReceiver.setRestEndpoints(restQueue);
 
-        discordBot.registerSlashCommand("blackjack", Blackjack.getSlashCommand());
-        try {
-            discordBot.registerSlashCommand("randomchallenge", RandomChallenge.getSlashCommand("./data/challenges.json", discordBot));
-        } catch (Exception exception) {
-            GeneralFormatter.printException("That didn't work. ", exception);
+        // "--warmup <seconds>" plays synthetic games for up to that long, so the first real users don't get an interpreted bot, see WarmUp.
+        // it needs the data files, and it comes before the recorder and the round history, so they don't get the synthetic games.
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--warmup")) {
+                String seconds = args[i + 1];
+                boolean challenges = catalogLoading.join();
+                strategyLoading.join();
+                runPhase("warm-up", "Couldn't warm up. ", () -> new WarmUp(Long.valueOf(seconds) * 1000, challenges).run());
+            }
         }
-        
 
-        discordBot.goOnline();
-        discordBot.control();
+        // "--record <file>" writes every interaction into a trace that can be replayed with InteractionReplayer.
+        // "--history <file>" appends every blackjack round to a history that can be scanned with RoundHistoryScanner.
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String file = args[i + 1];
+            if (args[i].equals("--record")) {
+                runPhase("recorder", "Couldn't start recording interactions. ", () -> InteractionRecorder.start(file));
+            } else if (args[i].equals("--history")) {
+                runPhase("round history", "Couldn't start the round history. ", () -> RoundHistory.start(file));
+            }
+        }
+
+        // tables that nobody clicked on for 5 minutes sleep on disk until the next click
+        runPhase("hibernation", "Couldn't open the hibernation store, idle games stay in memory. ", () -> Blackjack.startHibernation("./data/hibernation", 5 * 60 * 1000));
+
+        // the commands are registered one after another, since the bot isn't made to be registered to from several threads
+        runPhase("blackjack", "Couldn't register /blackjack. ", () -> discordBot[0].registerSlashCommand("blackjack", Blackjack.getSlashCommand()));
+        // bots only need the strategy tables once a game is running, so nothing waits for them
+        if (catalogLoading.join()) {
+            runPhase("randomchallenge", "Couldn't register /randomchallenge. ", () -> discordBot[0].registerSlashCommand("randomchallenge", RandomChallenge.getSlashCommand()));
+        }
+        startupExecutor.shutdown();
+
+        runPhase("going online", "Couldn't go online. ", () -> discordBot[0].goOnline());
+        System.out.println("Startup took " + ((System.nanoTime() - startNanos) / 1000000) + "ms" + (strategyLoading.isDone() ? "" : ", the strategy tables are still loading"));
+        discordBot[0].control();
         
-        discordBot.goOffline();
+        if (!restQueue.awaitIdle(5000)) {
+            System.out.println("Going offline with " + restQueue.getPending() + " rest requests still queued");
+        }
+        discordBot[0].goOffline();
+        InteractionRecorder.stop();
+        RoundHistory.stop();
+        // the errors are printed by a daemon thread, which would end with the process
+        Log.flush(1000);
+        System.out.println("Log: " + Log.getSummary());
+    }
+
+    // returns whether the phase worked. its time is printed either way.
+    private static boolean runPhase(String name, String errorMessage, StartupPhase phase) {
+        long startNanos = System.nanoTime();
+        boolean toReturn = true;
+        try {
+            phase.run();
+        } catch (Exception exception) {
+            Log.error(errorMessage, exception);
+            toReturn = false;
+        }
+        System.out.println("Startup: " + name + " took " + ((System.nanoTime() - startNanos) / 1000000) + "ms" + (toReturn ? "" : " and failed"));
+        return toReturn;
     }
 }
@@ -0,0 +1,123 @@
+package commands.games;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Scanner;
+
+import unrelibrary.MalformedException;
+
+// basic strategy tables for bot seats. they are generated offline by BasicStrategyGenerator and loaded once at startup.
+// a decision is a single array lookup, so bots can play during an interaction without slowing it down.
+// the file has one line per hand: "<table> <index> <decisions>", where the decisions are one character per dealer up card (ace, 2 to 9, 10).
+// the tables are "hard" and "soft" with the hand value as index and "pair" with the blackjack rank of the pair as index.
+// the first two-card decision and later decisions are stored separately as "first-hard", "later-hard" and so on, since ties and doubling depend on it.
+public class BasicStrategy {
+    public static final byte STAND = 0;
+    public static final byte HIT = 1;
+    public static final byte DOUBLE_DOWN_OR_HIT = 2;
+    public static final byte DOUBLE_DOWN_OR_STAND = 3;
+    public static final char[] DECISION_CHARACTERS = new char[] {'S', 'H', 'D', 'd'};
+
+    private static final int RANKS = PlayingCardDealer.BLACKJACK_RANKS;
+    private static final int VALUES = 22; // hand values from 0 to 21
+    // [first decision ? 0 : 1][soft ? 1 : 0][hand value][up card rank]
+    private static byte[][][][] totalDecisions = null;
+    // [pair rank][up card rank], only for the first decision
+    private static byte[][] pairDecisions = null;
+
+    public static boolean isLoaded() {
+        return totalDecisions != null;
+    }
+
+    public static void loadTables(String file) throws FileNotFoundException, MalformedException {
+        byte[][][][] newTotalDecisions = new byte[2][2][VALUES][RANKS];
+        byte[][] newPairDecisions = new byte[RANKS][RANKS];
+        // hands that aren't in the file are hit below 17 and stood on otherwise
+        for (int first = 0; first < 2; first++) {
+            for (int soft = 0; soft < 2; soft++) {
+                for (int value = 0; value < VALUES; value++) {
+                    for (int upRank = 0; upRank < RANKS; upRank++) {
+                        newTotalDecisions[first][soft][value][upRank] = value < 17 ? HIT : STAND;
+                    }
+                }
+            }
+        }
+        for (int pairRank = 0; pairRank < RANKS; pairRank++) {
+            newPairDecisions[pairRank] = newTotalDecisions[0][pairRank == 0 ? 1 : 0][pairRank == 0 ? 12 : 2 * (pairRank + 1)].clone();
+        }
+        Scanner scanner = new Scanner(new File(file));
+        try {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine().trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 3 || parts[2].length() != RANKS) {
+                    throw new MalformedException();
+                }
+                int index;
+                try {
+                    index = Integer.valueOf(parts[1]);
+                } catch (NumberFormatException numberFormatException) {
+                    throw new MalformedException();
+                }
+                byte[] decisions = new byte[RANKS];
+                for (int upRank = 0; upRank < RANKS; upRank++) {
+                    decisions[upRank] = getDecision(parts[2].charAt(upRank));
+                }
+                if (parts[0].equals("pair") && index >= 0 && index < RANKS) {
+                    newPairDecisions[index] = decisions;
+                } else if (index >= 0 && index < VALUES) {
+                    int first;
+                    int soft;
+                    if (parts[0].equals("first-hard")) {
+                        first = 0;
+                        soft = 0;
+                    } else if (parts[0].equals("first-soft")) {
+                        first = 0;
+                        soft = 1;
+                    } else if (parts[0].equals("later-hard")) {
+                        first = 1;
+                        soft = 0;
+                    } else if (parts[0].equals("later-soft")) {
+                        first = 1;
+                        soft = 1;
+                    } else {
+                        throw new MalformedException();
+                    }
+                    newTotalDecisions[first][soft][index] = decisions;
+                } else {
+                    throw new MalformedException();
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+        pairDecisions = newPairDecisions;
+        totalDecisions = newTotalDecisions;
+        return;
+    }
+
+    private static byte getDecision(char character) throws MalformedException {
+        for (byte decision = 0; decision < DECISION_CHARACTERS.length; decision++) {
+            if (DECISION_CHARACTERS[decision] == character) {
+                return decision;
+            }
+        }
+        throw new MalformedException();
+    }
+
+    // value is the hand's value as the game scores it, see PlayingCard.getBlackjackValue, and soft is whether that counts an ace as 11.
+    // pairRank is the blackjack rank of the pair, or -1 if the hand isn't a pair of two cards.
+    // the result is one of STAND, HIT, DOUBLE_DOWN_OR_HIT and DOUBLE_DOWN_OR_STAND.
+    public static byte decide(int value, boolean soft, boolean twoCards, int pairRank, int upRank) {
+        if (pairRank >= 0 && twoCards) {
+            return pairDecisions[pairRank][upRank];
+        }
+        if (value > 21) {
+            return STAND;
+        }
+        return totalDecisions[twoCards ? 0 : 1][soft ? 1 : 0][value][upRank];
+    }
+}
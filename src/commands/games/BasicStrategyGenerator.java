@@ -0,0 +1,107 @@
+package commands.games;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+
+// generates the tables loaded by BasicStrategy. this is run offline, not by the bot:
+// java commands.games.BasicStrategyGenerator [decks] [output file]
+// every hand is evaluated with BlackjackOdds on a fresh shoe, so the decisions follow the same payouts as Game.evaluateRound.
+// that only holds while BlackjackOdds values hands like the game, so nothing is written if ValuationCheck finds a hand they disagree on.
+public class BasicStrategyGenerator {
+    private static final int RANKS = PlayingCardDealer.BLACKJACK_RANKS;
+
+    private static final int CHECKED_HANDS = 1000000;
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int decks = 6;
+        String file = "./data/basicstrategy.txt";
+        if (args.length > 0) {
+            decks = Integer.valueOf(args[0]);
+        }
+        if (args.length > 1) {
+            file = args[1];
+        }
+        int disagreements = ValuationCheck.check(CHECKED_HANDS, System.nanoTime());
+        if (disagreements > 0) {
+            System.out.println("BlackjackOdds and PlayingCard.getBlackjackValue disagree on " + disagreements + " of " + CHECKED_HANDS + " hands, so no tables are written.");
+            System.exit(1);
+        }
+        int[] shoe = new int[RANKS];
+        for (int rank = 0; rank < RANKS - 1; rank++) {
+            shoe[rank] = decks * 4;
+        }
+        shoe[RANKS - 1] = decks * 4 * 4;
+        BlackjackOdds odds = new BlackjackOdds();
+        PrintWriter writer = new PrintWriter(file);
+        writer.println("# generated by BasicStrategyGenerator for " + decks + " decks");
+        writer.println("# S = stand, H = hit, D = double down or else hit, d = double down or else stand");
+        writer.println("# up cards: A 2 3 4 5 6 7 8 9 10");
+        for (int later = 0; later < 2; later++) {
+            String prefix = later == 0 ? "first-" : "later-";
+            boolean twoCards = later == 0;
+            // hard hands, made of two different ranks where possible
+            for (int value = 4; value <= 21; value++) {
+                int[] ranks = getHardRepresentative(value);
+                if (ranks == null) {
+                    continue;
+                }
+                writer.println(prefix + "hard " + value + " " + getDecisions(odds, shoe, ranks, twoCards));
+            }
+            // soft hands, an ace and one other card
+            for (int value = 12; value <= 21; value++) {
+                int[] ranks = new int[] {0, value - 12};
+                writer.println(prefix + "soft " + value + " " + getDecisions(odds, shoe, ranks, twoCards));
+            }
+        }
+        for (int pairRank = 0; pairRank < RANKS; pairRank++) {
+            writer.println("pair " + pairRank + " " + getDecisions(odds, shoe, new int[] {pairRank, pairRank}, true));
+        }
+        writer.close();
+        return;
+    }
+
+    // two ranks adding up to a hard value, different from each other if possible
+    private static int[] getHardRepresentative(int value) {
+        int[] pair = null;
+        for (int high = RANKS - 1; high >= 1; high--) {
+            int low = value - (high + 1) - 1;
+            if (low >= 1 && low <= high) {
+                if (low != high) {
+                    return new int[] {high, low};
+                } else if (pair == null) {
+                    pair = new int[] {high, low};
+                }
+            }
+        }
+        return pair;
+    }
+
+    private static String getDecisions(BlackjackOdds odds, int[] shoe, int[] handRanks, boolean twoCards) {
+        StringBuilder toReturnBuilder = new StringBuilder();
+        int hardTotal = 0;
+        boolean hasAce = false;
+        for (int rank : handRanks) {
+            hardTotal += rank + 1;
+            hasAce = hasAce || rank == 0;
+        }
+        BlackjackOdds.HandValue hand = new BlackjackOdds.HandValue(hardTotal, hasAce, twoCards);
+        for (int upRank = 0; upRank < RANKS; upRank++) {
+            int[] unseen = shoe.clone();
+            unseen[upRank]--;
+            for (int rank : handRanks) {
+                unseen[rank]--;
+            }
+            double standValue = odds.getStandExpectedValue(unseen, upRank, hand);
+            double hitValue = hand.getValue() >= 21 ? -1 : odds.getHitExpectedValue(unseen, upRank, hand);
+            byte decision = hitValue > standValue ? BasicStrategy.HIT : BasicStrategy.STAND;
+            if (twoCards && hand.getValue() < 21) {
+                double doubleDownValue = odds.getDoubleDownExpectedValue(unseen, upRank, hand);
+                if (doubleDownValue > Math.max(standValue, hitValue)) {
+                    decision = decision == BasicStrategy.HIT ? BasicStrategy.DOUBLE_DOWN_OR_HIT : BasicStrategy.DOUBLE_DOWN_OR_STAND;
+                }
+            }
+            toReturnBuilder.append(BasicStrategy.DECISION_CHARACTERS[decision]);
+        }
+        return toReturnBuilder.toString();
+    }
+}
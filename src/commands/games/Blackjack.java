@@ -1,5 +1,12 @@
 package commands.games;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Collections;
 import java.util.Comparator;
@@ -8,7 +15,17 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import unrelibrary.discordobjects.components.TextDisplay;
 import unrelibrary.discordobjects.components.TextInput;
@@ -29,21 +46,99 @@ import unrelibrary.discordobjects.interactions.ModalInteraction;
 import unrelibrary.discordobjects.interactions.SlashCommandInteraction;
 import unrelibrary.restapi.CustomIDListeningUpdate;
 import unrelibrary.restapi.SlashCommand;
+import scheduling.TimingWheel;
+import logging.Log;
+import commands.utility.ClickLimiter;
+import recording.InteractionRecorder;
+import recording.RoundHistory;
 
 // for custom ids, use strings with lower camelcase and a space as a seperator. first, the intended game state when interacted, then the action and further info.
 // for example "ready join " + id.
 // mention member field is guaranteed because of slashcommand context
 // mention manually removing the custom ids if called in the wrong state is a failsafe
-// mention card counting works
+// mention card counting works, and that the hint button uses the same information (see BlackjackOdds)
+// mention that the host can switch on continuous shuffling, which makes counting useless
 public class Blackjack {
     private static final int MAX_PARTICIPANTS = 6;
     private static final int MIN_DECKS = 4;
     private static final int MAX_DECKS = 10;
+    private static final int BOT_BET = 100; // bots always bet this much, or everything they have left
+    // if somebody doesn't act in time, the game acts for them so that the others don't have to wait forever
+    private static final long BET_TIMEOUT_MILLIS = 2 * 60 * 1000; // after this, a participant sits out the round
+    private static final long MOVE_TIMEOUT_MILLIS = 60 * 1000; // after this, a participant stands
+    private static final long READY_UP_TIMEOUT_MILLIS = 2 * 60 * 1000; // after this, a participant is ready
+    private static final long READY_TIMEOUT_MILLIS = 15 * 60 * 1000; // after this, a game that was never started ends
+    private static final long GAME_TIMEOUT_MILLIS = 10 * 60 * 1000; // after this, a game that is stuck in one state ends
+    private static final long EDIT_WINDOW_MILLIS = 75; // clicks on the same game within this window only send one edit, see Game.coalesce
+    public static final LongAdder SENT_EDITS = new LongAdder();
+    public static final LongAdder COALESCED_EDITS = new LongAdder(); // clicks whose edit was sent by a newer click
+    private static final Interaction.CustomIDUpdatingResponse DEFERRED_EDIT = new Interaction.CustomIDUpdatingResponse(new Interaction.MessageResponse(6), new CustomIDListeningUpdate(null, null, null, null)); // stands in for an edit that coalesce renders later
+    public static final LongAdder STALE_CLICKS = new LongAdder(); // clicks on an older state's message, which were turned away without the mailbox
+    public static final UserProfileCache PROFILES = new UserProfileCache(10000); // the names and avatars of every participant
+    private static final TimingWheel TIMING_WHEEL = new TimingWheel("Blackjack timeouts", 250);
     
-    private static final Random RANDOM = new Random(System.currentTimeMillis());
+    private static volatile boolean timeoutsEnabled = true; // replays run their timeouts from the trace instead
+    // games that only wait for their game timeout sleep in this store once nobody clicked on them for a while, see startHibernation
+    private static final long HIBERNATION_SWEEP_MILLIS = 30 * 1000;
+    private static final int HIBERNATION_VERSION = 2;
+    private static volatile HibernationStore hibernationStore = null;
+    private static volatile long hibernateAfterNanos = Long.MAX_VALUE;
+    
+    private static Random RANDOM = new Random(System.currentTimeMillis()); // every game draws its own random from this one, see InteractionRecorder
     private static Map<Long, Game> idToGame = new TreeMap<Long, Game>();
+    private static Set<Long> hibernatingIDs = new HashSet<Long>(); // games in the hibernation store. guarded by the class like idToGame.
+
+    // what the custom id handlers of a game hold on to instead of the game itself, so that a hibernating game can leave the heap
+    private static class GameHandle {
+        private final long ID;
+        private Game game; // null while the game hibernates
+        private TimingWheel.Timeout wakeUp = null; // wakes the game up when its game timeout would have run out
+
+        private GameHandle(Game game) {
+            this.ID = game.ID;
+            this.game = game;
+        }
+
+        // returns the game, and reads it back from the store first if it hibernates. this returns null if the game couldn't be read back.
+        private synchronized Game awaken() {
+            if (game != null) {
+                return game;
+            }
+            TIMING_WHEEL.cancel(wakeUp);
+            wakeUp = null;
+            Game woken = null;
+            try {
+                woken = Game.read(new DataInputStream(new ByteArrayInputStream(hibernationStore.read(ID))), this);
+            } catch (IOException ioException) {
+                Log.error("Couldn't wake up blackjack game " + ID + ", it's lost. ", ioException);
+            }
+            hibernationStore.delete(ID);
+            synchronized (Blackjack.class) {
+                hibernatingIDs.remove(ID);
+                if (woken != null) {
+                    idToGame.put(ID, woken);
+                }
+            }
+            game = woken;
+            return woken;
+        }
+
+        // runs on the game's mailbox, after the game was written into the store
+        private synchronized void sleep(long gameDeadlineNanos) {
+            game = null;
+            wakeUp = TIMING_WHEEL.schedule(
+                () -> Thread.ofVirtual().name("Blackjack wake up " + ID).start(this::awaken), // the wheel's thread shouldn't read files
+                (gameDeadlineNanos - System.nanoTime()) / 1000000L
+            );
+            synchronized (Blackjack.class) {
+                idToGame.remove(ID);
+                hibernatingIDs.add(ID);
+            }
+            return;
+        }
+    }
 
-    private static class Game {
+    public static class Game {
         public static enum State {
             REGISTERED, // the game object has been created locally and registered in idToGame. this isn't used as of now, but this setup would allow to set up a game without directly sending its message.
             READY, // the game has an associated message in chat
@@ -54,28 +149,138 @@ public class Blackjack {
         };
         public final long ID;
         public final int DECKS;
-        private List<Participant> participants = new LinkedList<Participant>(); // this stuff has to be synchronized to be thread safe
-        private GuildMember host;
+        private List<Participant> participants = new LinkedList<Participant>(); // like everything else in the game, this is only touched from its mailbox
+        public final long HOST_ID;
+        public final String HOST_NAME;
         private State state;
         private State lastState = null;
+        private State renderedState = null; // the state that the message on discord and the custom ids listened to belong to
+        // every state change gets a new version, which is part of the custom ids rendered for it. a click carries the version it was rendered with,
+        // so a click from an older state is recognized by comparing two numbers, without the mailbox, see putVersionedHandler.
+        // they're only changed on the mailbox, and volatile so that the handlers can read them before they get there.
+        private volatile int stateVersion = 0;
+        private volatile int renderedVersion = -1;
+        private TimingWheel.Timeout gameTimeout = null;
+        private long gameDeadlineNanos = 0; // when gameTimeout runs out
+        private final GameHandle HANDLE;
+        private volatile long lastActivityNanos = System.nanoTime(); // the last click or state change, see hibernateIfIdle
+        private boolean hibernated = false; // this object was written into the store and isn't the game anymore, see GameHandle
         public String name;
         public PlayingCardDealer playingCardDealer;
         public List<PlayingCard> dealerHand = new LinkedList<PlayingCard>();
         public Participant.HandState dealerHandState = Participant.HandState.UNFINISHED;
+        private final StringBuilder renderBuilder = new StringBuilder(1024); // reused by every render of this game
+        private final BlackjackOdds odds = new BlackjackOdds(); // only used by the hints, see Hint
+        private final int[] unseenRankCounts = new int[PlayingCardDealer.BLACKJACK_RANKS];
+        private int botsAdded = 0;
+        private long houseBalance = 0; // what the house won from the participants. together with their currency, this is what they all started with.
+        // everything that reads or changes the game goes through this mailbox, see call and post. it's drained by one virtual thread at a time,
+        // so the game logic itself never needs a lock, and different games never wait for each other.
+        private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile Thread drainingThread = null;
+        // see coalesce
+        private boolean deferringEdits = false; // while coalesce runs a handler, its edit is only noted down and not rendered
+        private boolean deferredNewState = false; // whether any of the edits that weren't rendered yet started a new state
+        private long editWindowEndNanos = 0; // the next edit is held back until then
+        private CompletableFuture<Void> pendingEdit = null; // belongs to the click that sends the held back edit. it completes when a newer click takes over.
 
-        public Game(long id, int decks, String name, GuildMember host) {
+        // what a click does once its handler ran, see coalesce
+        private static class Edit {
+            private final Interaction.CustomIDUpdatingResponse RESPONSE; // null if the click waits for the window to end
+            private final CompletableFuture<Void> PENDING;
+
+            private Edit(Interaction.CustomIDUpdatingResponse response, CompletableFuture<Void> pending) {
+                this.RESPONSE = response;
+                this.PENDING = pending;
+            }
+        }
+
+        public Game(long id, int decks, String name, long hostID, String hostName, long seed) {
+            this(id, decks, name, hostID, hostName, new PlayingCardDealer(decks, new Random(seed)), null);
+        }
+
+        private Game(long id, int decks, String name, long hostID, String hostName, PlayingCardDealer playingCardDealer, GameHandle handle) {
             this.ID = id;
             this.DECKS = decks;
             this.state = State.REGISTERED;
             this.name = name;
-            this.host = host;
-            playingCardDealer = new PlayingCardDealer(DECKS);
+            this.HOST_ID = hostID;
+            this.HOST_NAME = hostName;
+            this.playingCardDealer = playingCardDealer;
+            this.HANDLE = handle == null ? new GameHandle(this) : handle;
+        }
+
+        // runs the message on the game's mailbox and waits for its result. this is how interactions get into the game.
+        // if the mailbox is idle, the caller drains it itself instead of waiting for another thread to be scheduled.
+        // exceptions are passed on to the caller. from the mailbox itself, the message is just run directly.
+        public <T> T call(Supplier<T> message) {
+            if (Thread.currentThread() == drainingThread) {
+                return message.get();
+            }
+            CompletableFuture<T> result = new CompletableFuture<T>();
+            mailbox.add(() -> {
+                try {
+                    result.complete(message.get());
+                } catch (Throwable throwable) {
+                    result.completeExceptionally(throwable);
+                }
+                return;
+            });
+            if (draining.compareAndSet(false, true)) {
+                drain(result);
+            }
+            try {
+                return result.join();
+            } catch (CompletionException completionException) {
+                if (completionException.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) completionException.getCause();
+                } else if (completionException.getCause() instanceof Error) {
+                    throw (Error) completionException.getCause();
+                }
+                throw completionException;
+            }
+        }
+
+        // queues the message without waiting for it. this is used by the timeouts, which shouldn't run game logic on the timing wheel's thread.
+        public void post(Runnable message) {
+            mailbox.add(message);
+            if (draining.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("Blackjack game " + ID).start(() -> drain(null));
+            }
+            return;
+        }
+
+        // only runs after winning the draining flag. a caller stops once its own result is there and hands the rest to a new virtual thread.
+        private void drain(CompletableFuture<?> ownResult) {
+            while (true) {
+                drainingThread = Thread.currentThread();
+                Runnable message;
+                while ((ownResult == null || !ownResult.isDone()) && (message = mailbox.poll()) != null) {
+                    try {
+                        message.run();
+                    } catch (Exception exception) {
+                        Log.error("A blackjack game failed to handle a message. ", exception);
+                    }
+                }
+                drainingThread = null;
+                draining.set(false);
+                // a message that was added after the last poll, but before draining was reset, didn't start a drain of its own
+                if (mailbox.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+                if (ownResult != null && ownResult.isDone()) {
+                    Thread.ofVirtual().name("Blackjack game " + ID).start(() -> drain(null));
+                    return;
+                }
+            }
         }
 
         public static class Participant {
             public static enum PlayingState {
                 NOT_YET_BET,
                 HAS_BET, // this is the state while actually "playing"
+                SITTING_OUT, // didn't bet in time and skips this round
                 BANKRUPT,
                 LEFT
             }
@@ -86,7 +291,10 @@ public class Blackjack {
                 TWENTYONE
             }
             public static final String defaultAvatar = "https://upload.wikimedia.org/wikipedia/commons/a/a6/Anonymous_emblem.svg";
-            public final GuildMember MEMBER;
+            public static final int STARTING_CURRENCY = 1000;
+            public final long USER_ID; // bots have negative ids, so they can never be confused with users
+            public final UserProfile PROFILE; // shared with the user's other participants, see PROFILES
+            public final boolean BOT; // bots are run by the dealer and play by BasicStrategy
             public int currency;
             //public boolean hasBet;
             //public boolean bankrupt;
@@ -95,36 +303,76 @@ public class Blackjack {
             public HandState handState;
             public PlayingState playingState;
             public boolean ready = false; // ready for the next round.
+            private TimingWheel.Timeout timeout = null; // runs out if the participant doesn't act in time
+            private Hint hint = null; // the last hint that was prepared or shown, see getHint
+            // the last line rendered by getParticipantText, together with everything it was rendered from. it stays valid until one of these changes.
+            private String cachedLine = null;
+            private State cachedLineGameState = null;
+            private List<PlayingCard> cachedLineHand = null;
+            private int cachedLineHandSize = -1;
+            private int cachedLineCurrency = -1;
+            private int cachedLineBet = -1;
+            private PlayingState cachedLinePlayingState = null;
+            private HandState cachedLineHandState = null;
 
-            public Participant(GuildMember member) {
-                this.MEMBER = member;
-                currency = 1000;
+            public Participant(UserProfile profile, boolean bot) {
+                this.USER_ID = profile.USER_ID;
+                this.PROFILE = profile;
+                this.BOT = bot;
+                currency = STARTING_CURRENCY;
                 playingState = PlayingState.NOT_YET_BET;
                 bet = 0;
             }
 
             // THIS NEEDS TO CONTAIN ALL FIELDS
             public Participant clone() {
-                Participant toReturn = new Participant(MEMBER);
+                Participant toReturn = new Participant(PROFILE, BOT);
                 return toReturn;
             }
 
             public int getCurrency() {
                 return currency;
             }
+
+            // in the results, the line also depends on the dealer, but the dealer's hand doesn't change during the results
+            private boolean hasCachedLine(State gameState) {
+                return cachedLine != null
+                    && cachedLineGameState == gameState
+                    && cachedLineHand == hand
+                    && cachedLineHandSize == hand.size()
+                    && cachedLineCurrency == currency
+                    && cachedLineBet == bet
+                    && cachedLinePlayingState == playingState
+                    && cachedLineHandState == handState;
+            }
+
+            private void cacheLine(State gameState, String line) {
+                cachedLine = line;
+                cachedLineGameState = gameState;
+                cachedLineHand = hand;
+                cachedLineHandSize = hand.size();
+                cachedLineCurrency = currency;
+                cachedLineBet = bet;
+                cachedLinePlayingState = playingState;
+                cachedLineHandState = handState;
+                return;
+            }
         }
 
-        public synchronized State getState() {
+        public State getState() {
             return state;
         }
 
-        public synchronized State getLastState() {
+        public State getLastState() {
             return lastState;
         }
 
-        public synchronized void setState(State state) {
+        public void setState(State state) {
+            cancelTimeouts();
             lastState = this.state;
             this.state = state;
+            stateVersion++;
+            lastActivityNanos = System.nanoTime();
             if (state == State.BETTING_PHASE) {
                 for (Participant participant : participants) {
                     // this is the point where we declare players bankrupt
@@ -132,44 +380,341 @@ public class Blackjack {
                         participant.playingState = Participant.PlayingState.BANKRUPT;
                     }
                     // players who have left or are bankrupt are not effected.
-                    if (participant.playingState == Participant.PlayingState.HAS_BET) {
+                    if (participant.playingState == Participant.PlayingState.HAS_BET || participant.playingState == Participant.PlayingState.SITTING_OUT) {
                         participant.playingState = Participant.PlayingState.NOT_YET_BET;
                     }
                     participant.ready = false;                    
                 }
-                if (((double) playingCardDealer.cardsLeft() / (double) playingCardDealer.CARDS) < 0.25) {
+                placeBotBets();
+                // with continuous shuffling, the cards are already back in the shoe
+                // the odds are memoized by composition, so they stay valid after a reshuffle
+                if (!playingCardDealer.isContinuousShuffle() && ((double) playingCardDealer.cardsLeft() / (double) playingCardDealer.CARDS) < 0.25) {
                     playingCardDealer.refillAndShuffle();
                 }
             } else if (state == State.IN_GAME) {
                 resetHands();
                 initialDealing();
+                playBotHands();
+                // the first hint of the round is what takes long, so it's worked out before anybody asks
+                for (Participant participant : participants) {
+                    if (!participant.BOT && participant.playingState == Participant.PlayingState.HAS_BET && participant.handState == Participant.HandState.UNFINISHED) {
+                        getHint(participant).prepareLater();
+                    }
+                }
             } else if (state == State.RESULTS) {
                 finalDealing();
                 evaluateRound();
+                for (Participant participant : participants) {
+                    if (participant.BOT) {
+                        participant.ready = true;
+                    }
+                }
             } else if (state == State.FINISHED) {
                 sortParticipantsByCurrency();
             }
+            armTimeouts();
+            return;
+        }
+
+        private void cancelTimeouts() {
+            TIMING_WHEEL.cancel(gameTimeout);
+            gameTimeout = null;
+            for (Participant participant : participants) {
+                cancelTimeout(participant);
+            }
+            return;
+        }
+
+        private void cancelTimeout(Participant participant) {
+            TIMING_WHEEL.cancel(participant.timeout);
+            participant.timeout = null;
+            return;
+        }
+
+        // every state except the last one has a deadline for the whole game, and a deadline for every participant that the others are waiting for
+        private void armTimeouts() {
+            if (state == State.FINISHED || !timeoutsEnabled) {
+                return;
+            }
+            long gameTimeoutMillis = state == State.READY ? READY_TIMEOUT_MILLIS : GAME_TIMEOUT_MILLIS;
+            armGameTimeout(gameTimeoutMillis);
+            gameDeadlineNanos = System.nanoTime() + gameTimeoutMillis * 1000000L;
+            for (Participant participant : participants) {
+                if (participant.BOT) {
+                    continue;
+                }
+                if (state == State.BETTING_PHASE && participant.playingState == Participant.PlayingState.NOT_YET_BET) {
+                    participant.timeout = TIMING_WHEEL.schedule(() -> post(() -> autoSkipBet(participant.USER_ID)), BET_TIMEOUT_MILLIS);
+                } else if (state == State.IN_GAME && participant.handState == Participant.HandState.UNFINISHED) {
+                    armMoveTimeout(participant);
+                } else if (state == State.RESULTS && participant.playingState == Participant.PlayingState.HAS_BET && participant.currency > 0) {
+                    participant.timeout = TIMING_WHEEL.schedule(() -> post(() -> autoReadyUp(participant.USER_ID)), READY_UP_TIMEOUT_MILLIS);
+                }
+            }
+            return;
+        }
+
+        private void armGameTimeout(long delayMillis) {
+            gameTimeout = TIMING_WHEEL.schedule(() -> post(() -> {
+                // if the wheel ran it out while the game went to sleep, the woken game has its own
+                if (!hibernated) {
+                    timeOut();
+                }
+                return;
+            }), delayMillis);
+            return;
+        }
+
+        // every move gives the participant a fresh deadline
+        private void armMoveTimeout(Participant participant) {
+            cancelTimeout(participant);
+            if (timeoutsEnabled) {
+                participant.timeout = TIMING_WHEEL.schedule(() -> post(() -> autoStand(participant.USER_ID)), MOVE_TIMEOUT_MILLIS);
+            }
+            return;
+        }
+
+        // the following are posted to the mailbox by the timing wheel, or called from a replay. the message on discord is brought up to date with the next interaction, see wrongStateResponse.
+        public void timeOut() {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_GAME_TIMEOUT, ID, 0);
+            if (state != State.FINISHED) {
+                setState(State.FINISHED);
+                deleteGame();
+            }
+            return;
+        }
+
+        public void autoSkipBet(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_BET_TIMEOUT, ID, userID);
+            Participant participant = getParticipantByUserID(userID);
+            if (participant == null || state != State.BETTING_PHASE || participant.playingState != Participant.PlayingState.NOT_YET_BET) {
+                return;
+            }
+            participant.timeout = null;
+            participant.playingState = Participant.PlayingState.SITTING_OUT;
+            if (everybodyHasBetted()) {
+                if (someoneHasBet()) {
+                    setState(State.IN_GAME);
+                } else {
+                    // nobody at the table is playing anymore
+                    setState(State.FINISHED);
+                    deleteGame();
+                }
+            }
             return;
         }
 
-        public synchronized void deleteGame() {
-            // this just deletes its last reference
-            Blackjack.idToGame.remove(ID);
+        public void autoStand(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_MOVE_TIMEOUT, ID, userID);
+            Participant participant = getParticipantByUserID(userID);
+            if (participant == null || state != State.IN_GAME || participant.handState != Participant.HandState.UNFINISHED) {
+                return;
+            }
+            participant.timeout = null;
+            participant.handState = Participant.HandState.STAND;
+            if (!someoneCanMakeAMove()) {
+                setState(State.RESULTS);
+            }
+            return;
+        }
+
+        public void autoReadyUp(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_UP_TIMEOUT, ID, userID);
+            Participant participant = getParticipantByUserID(userID);
+            if (participant == null || state != State.RESULTS || participant.ready) {
+                return;
+            }
+            participant.timeout = null;
+            participant.ready = true;
+            if (activePlayersExist() && participantsStillToReadyUp() == 0) {
+                setState(State.BETTING_PHASE);
+            }
             return;
         }
 
-        public synchronized boolean addParticipant(GuildMember member) {
+        // runs on the mailbox, posted by the hibernation sweep. a game that nobody clicked on for a while, and that only waits for its game timeout,
+        // is written into the store and dropped from the heap. its handlers wake it up with the next click, see GameHandle.
+        private void hibernateIfIdle() {
+            if (hibernated || hibernationStore == null || System.nanoTime() - lastActivityNanos < hibernateAfterNanos || !mailbox.isEmpty()) {
+                return;
+            }
+            if (state != State.READY && state != State.RESULTS) {
+                return;
+            }
+            for (Participant participant : participants) {
+                if (participant.timeout != null) {
+                    return;
+                }
+            }
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+                write(new DataOutputStream(bytes));
+                hibernationStore.write(ID, bytes.toByteArray());
+            } catch (IOException ioException) {
+                Log.error("Couldn't put a blackjack game to sleep, it stays awake. ", ioException); // without the id, so a full disk is only printed a few times
+                return;
+            }
+            TIMING_WHEEL.cancel(gameTimeout);
+            gameTimeout = null;
+            hibernated = true;
+            HANDLE.sleep(gameDeadlineNanos);
+            return;
+        }
+
+        // everything that isn't just a cache. the custom ids that are listened to stay registered, so they aren't part of it.
+        private void write(DataOutputStream output) throws IOException {
+            output.writeByte(HIBERNATION_VERSION);
+            output.writeLong(ID);
+            output.writeUTF(name);
+            output.writeLong(HOST_ID);
+            writeNullableUTF(output, HOST_NAME);
+            writeOrdinal(output, state);
+            writeOrdinal(output, lastState);
+            writeOrdinal(output, renderedState);
+            output.writeInt(stateVersion);
+            output.writeInt(renderedVersion);
+            output.writeInt(botsAdded);
+            output.writeLong(houseBalance);
+            output.writeLong(gameDeadlineNanos);
+            playingCardDealer.write(output);
+            writeHand(output, dealerHand);
+            writeOrdinal(output, dealerHandState);
+            output.writeByte(participants.size());
+            for (Participant participant : participants) {
+                output.writeLong(participant.USER_ID);
+                writeNullableUTF(output, participant.PROFILE.GLOBAL_NAME);
+                writeNullableUTF(output, participant.PROFILE.DEFAULT_AVATAR ? null : participant.PROFILE.AVATAR_URL);
+                output.writeBoolean(participant.BOT);
+                output.writeInt(participant.currency);
+                output.writeInt(participant.bet);
+                writeHand(output, participant.hand);
+                writeOrdinal(output, participant.handState);
+                writeOrdinal(output, participant.playingState);
+                output.writeBoolean(participant.ready);
+            }
+            return;
+        }
+
+        // the game continues with the same handle, so the handlers that woke it up find it
+        private static Game read(DataInputStream input, GameHandle handle) throws IOException {
+            if (input.readUnsignedByte() != HIBERNATION_VERSION) {
+                throw new IOException("the game was written by another version");
+            }
+            long id = input.readLong();
+            String name = input.readUTF();
+            long hostID = input.readLong();
+            String hostName = readNullableUTF(input);
+            State state = readOrdinal(input, State.values());
+            State lastState = readOrdinal(input, State.values());
+            State renderedState = readOrdinal(input, State.values());
+            int stateVersion = input.readInt();
+            int renderedVersion = input.readInt();
+            int botsAdded = input.readInt();
+            long houseBalance = input.readLong();
+            long gameDeadlineNanos = input.readLong();
+            PlayingCardDealer playingCardDealer = PlayingCardDealer.read(input);
+            Game toReturn = new Game(id, playingCardDealer.DECKS, name, hostID, hostName, playingCardDealer, handle);
+            toReturn.state = state;
+            toReturn.lastState = lastState;
+            toReturn.renderedState = renderedState;
+            toReturn.stateVersion = stateVersion;
+            toReturn.renderedVersion = renderedVersion;
+            toReturn.botsAdded = botsAdded;
+            toReturn.houseBalance = houseBalance;
+            toReturn.dealerHand = readHand(input);
+            toReturn.dealerHandState = readOrdinal(input, Participant.HandState.values());
+            int participantCount = input.readUnsignedByte();
+            for (int i = 0; i < participantCount; i++) {
+                long userID = input.readLong();
+                String globalName = readNullableUTF(input);
+                String avatarURL = readNullableUTF(input);
+                Participant participant = new Participant(PROFILES.get(userID, globalName, avatarURL), input.readBoolean());
+                participant.currency = input.readInt();
+                participant.bet = input.readInt();
+                participant.hand = readHand(input);
+                participant.handState = readOrdinal(input, Participant.HandState.values());
+                participant.playingState = readOrdinal(input, Participant.PlayingState.values());
+                participant.ready = input.readBoolean();
+                toReturn.participants.add(participant);
+            }
+            // the game timeout goes on from where it was
+            toReturn.gameDeadlineNanos = gameDeadlineNanos;
+            if (timeoutsEnabled) {
+                toReturn.armGameTimeout((gameDeadlineNanos - System.nanoTime()) / 1000000L);
+            }
+            return toReturn;
+        }
+
+        private static void writeNullableUTF(DataOutputStream output, String text) throws IOException {
+            output.writeBoolean(text != null);
+            if (text != null) {
+                output.writeUTF(text);
+            }
+            return;
+        }
+
+        private static String readNullableUTF(DataInputStream input) throws IOException {
+            return input.readBoolean() ? input.readUTF() : null;
+        }
+
+        private static void writeOrdinal(DataOutputStream output, Enum<?> value) throws IOException {
+            output.writeByte(value == null ? -1 : value.ordinal());
+            return;
+        }
+
+        private static <T extends Enum<T>> T readOrdinal(DataInputStream input, T[] values) throws IOException {
+            int ordinal = input.readByte();
+            return ordinal == -1 ? null : values[ordinal];
+        }
+
+        private static void writeHand(DataOutputStream output, List<PlayingCard> hand) throws IOException {
+            output.writeByte(hand.size());
+            for (PlayingCard card : hand) {
+                output.writeByte(card.CODE);
+            }
+            return;
+        }
+
+        private static List<PlayingCard> readHand(DataInputStream input) throws IOException {
+            List<PlayingCard> toReturn = new LinkedList<PlayingCard>();
+            int cards = input.readUnsignedByte();
+            for (int i = 0; i < cards; i++) {
+                toReturn.add(PlayingCard.get(input.readUnsignedByte()));
+            }
+            return toReturn;
+        }
+
+        public void deleteGame() {
+            // this just deletes its last reference. the map is shared by every game, so it's guarded by the class like createGame.
+            synchronized (Blackjack.class) {
+                Blackjack.idToGame.remove(ID);
+            }
+            return;
+        }
+
+        public boolean addParticipant(long userID, String globalName, String avatarURL) {
             if (participants.size() >= MAX_PARTICIPANTS) {
                 return false;
             } else {
-                participants.add(new Participant(member));
+                participants.add(new Participant(PROFILES.get(userID, globalName, avatarURL), false));
                 return true;
             }
         }
 
-        public synchronized boolean removeParticipant(long id) {
+        // bots fill empty seats. they can only be added if the strategy tables have been loaded.
+        public boolean addBot() {
+            if (participants.size() >= MAX_PARTICIPANTS || !BasicStrategy.isLoaded()) {
+                return false;
+            } else {
+                botsAdded++;
+                participants.add(new Participant(PROFILES.get(-botsAdded, "Bot " + botsAdded, null), true));
+                return true;
+            }
+        }
+
+        public boolean removeParticipant(long id) {
             for (int i = 0; i < participants.size(); i++) {
-                if (participants.get(i).MEMBER.USER.ID == id) {
+                if (participants.get(i).USER_ID == id) {
                     participants.remove(i);
                     return true;
                 }
@@ -177,47 +722,37 @@ public class Blackjack {
             return false;
         }
 
-        public synchronized void handOutCard(Participant participant) {
+        public void handOutCard(Participant participant) {
             participant.hand.add(playingCardDealer.dealCard());
             return;
         }
 
-        public synchronized String[] participantGlobalNames() {
-            String[] toReturn = new String[participants.size()];
-            for (int i = 0; i < participants.size(); i++) {
-                toReturn[i] = participants.get(i).MEMBER.USER.GLOBAL_NAME; // since strings are immutable anyway, we can just pass a reference
-            }
-            return toReturn;
+        // a view for reading, it's only valid on the mailbox
+        public List<Participant> getParticipants() {
+            return Collections.unmodifiableList(participants);
         }
 
-        public synchronized Participant getParticipantByUserID(long userID) {
+        public Participant getParticipantByUserID(long userID) {
             for (Participant participant : participants) {
-                if (participant.MEMBER.USER.ID == userID) {
+                if (participant.USER_ID == userID) {
                     return participant;
                 }
             }
             return null;
         }
 
-        public synchronized String[] participantAvatars() {
-            String[] toReturn = new String[participants.size()];
-            for (int i = 0; i < participants.size(); i++) {
-                toReturn[i] = participants.get(i).MEMBER.getVisibleAvatarURL(); // this ignores server profile pictures
-            }
-            return toReturn;
-        }
-
-        public synchronized boolean activePlayersExist() {
+        public boolean activePlayersExist() {
             for (Participant participant : participants) {
                 // players are only declared bankrupt at the beginning of a new round, so that they are still displayed normally during the results.
-                if ((participant.playingState == Participant.PlayingState.NOT_YET_BET || participant.playingState == Participant.PlayingState.HAS_BET) && participant.currency != 0) {
+                // bots don't count, because nobody would be left to play with them.
+                if (!participant.BOT && (participant.playingState == Participant.PlayingState.NOT_YET_BET || participant.playingState == Participant.PlayingState.HAS_BET) && participant.currency != 0) {
                     return true;
                 }
             }
             return false;
         }
 
-        public synchronized boolean everybodyHasBetted() { // returns true also if no active players exist anymore.
+        public boolean everybodyHasBetted() { // returns true also if no active players exist anymore.
             for (Participant participant : participants) {
                 // ignore people who left or are bankrupt
                 if (participant.playingState == Participant.PlayingState.NOT_YET_BET) {
@@ -227,7 +762,16 @@ public class Blackjack {
             return true;
         }
 
-        public synchronized boolean someoneCanMakeAMove() {
+        public boolean someoneHasBet() { // bots don't count
+            for (Participant participant : participants) {
+                if (!participant.BOT && participant.playingState == Participant.PlayingState.HAS_BET) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean someoneCanMakeAMove() {
             for (Participant participant : participants) {
                 if (participant.handState == Participant.HandState.UNFINISHED) {
                     return true;
@@ -236,11 +780,11 @@ public class Blackjack {
             return false;
         }
 
-        public synchronized int participantsStillToReadyUp() {
+        public int participantsStillToReadyUp() {
             int toReturn = 0;
             for (Game.Participant participant : participants) {
-                // every player who can ready up for the next round 
-                if (participant.playingState == Game.Participant.PlayingState.HAS_BET) {
+                // every player who can ready up for the next round. bots are always ready.
+                if (participant.playingState == Game.Participant.PlayingState.HAS_BET && !participant.BOT) {
                     if (!participant.ready && participant.currency > 0) {
                         toReturn++;
                     }
@@ -249,15 +793,17 @@ public class Blackjack {
             return toReturn;
         }
 
-        public synchronized void resetHands() {
+        public void resetHands() {
+            playingCardDealer.returnCards(dealerHand);
             dealerHand = new LinkedList<PlayingCard>();
             for (Participant participant : participants) {
+                playingCardDealer.returnCards(participant.hand);
                 participant.hand = new LinkedList<PlayingCard>();
             }
             return;
         }
 
-        public synchronized void initialDealing() {
+        public void initialDealing() {
             // kick out those who are bankrupt
             // deal everyone two cards
             dealerHand.add(playingCardDealer.dealCard());
@@ -276,7 +822,68 @@ public class Blackjack {
             return;
         }
 
-        public synchronized void finalDealing() {
+        public void placeBotBets() {
+            for (Participant participant : participants) {
+                if (participant.BOT && participant.playingState == Participant.PlayingState.NOT_YET_BET) {
+                    participant.bet = Math.min(BOT_BET, participant.currency);
+                    participant.playingState = Participant.PlayingState.HAS_BET;
+                }
+            }
+            return;
+        }
+
+        // bots play their whole hand right after the initial dealing. every decision is a lookup in the strategy tables.
+        public void playBotHands() {
+            int upRank = dealerHand.get(1).getBlackjackRank();
+            for (Participant participant : participants) {
+                if (!participant.BOT || participant.playingState != Participant.PlayingState.HAS_BET) {
+                    continue;
+                }
+                int firstRank = participant.hand.get(0).getBlackjackRank();
+                int secondRank = participant.hand.get(1).getBlackjackRank();
+                int hardTotal = firstRank + secondRank + 2;
+                boolean hasAce = firstRank == 0 || secondRank == 0;
+                int pairRank = firstRank == secondRank ? firstRank : -1;
+                boolean twoCards = true;
+                while (participant.handState == Participant.HandState.UNFINISHED) {
+                    // the tables are looked up by the value the game scores the hand with, and the hand is soft if that counts an ace as 11
+                    int value = PlayingCard.getBlackjackValue(participant.hand);
+                    boolean soft = hasAce && value == hardTotal + 10;
+                    byte decision = BasicStrategy.decide(value, soft, twoCards, pairRank, upRank);
+                    if (decision == BasicStrategy.DOUBLE_DOWN_OR_HIT || decision == BasicStrategy.DOUBLE_DOWN_OR_STAND) {
+                        if (2 * participant.bet <= participant.currency) {
+                            participant.bet *= 2;
+                        } else if (decision == BasicStrategy.DOUBLE_DOWN_OR_HIT) {
+                            decision = BasicStrategy.HIT;
+                        } else {
+                            decision = BasicStrategy.STAND;
+                        }
+                    }
+                    if (decision == BasicStrategy.STAND) {
+                        participant.handState = Participant.HandState.STAND;
+                        continue;
+                    }
+                    handOutCard(participant);
+                    int rank = participant.hand.getLast().getBlackjackRank();
+                    hardTotal += rank + 1;
+                    hasAce = hasAce || rank == 0;
+                    twoCards = false;
+                    pairRank = -1;
+                    int handValue = PlayingCard.getBlackjackValue(participant.hand);
+                    if (handValue > 21) {
+                        participant.handState = Participant.HandState.BUST;
+                    } else if (handValue == 21) {
+                        participant.handState = Participant.HandState.TWENTYONE;
+                    } else if (decision != BasicStrategy.HIT) {
+                        // after doubling down, you can't take any more cards.
+                        participant.handState = Participant.HandState.STAND;
+                    }
+                }
+            }
+            return;
+        }
+
+        public void finalDealing() {
             // once all players are done, the dealer proceeds
             int dealerHandValue = PlayingCard.getBlackjackValue(dealerHand);
             while (dealerHandValue < 17) {
@@ -294,67 +901,217 @@ public class Blackjack {
             return;
         }
 
-        public synchronized void evaluateRound() {
+        public void evaluateRound() {
+            // the round is only copied out of the game if the history is recorded
+            RoundHistory.Round round = RoundHistory.isRecording() ? new RoundHistory.Round(ID, dealerHand, participants.size()) : null;
             // see who wins and loses, and adjust bets and currency.
             for (Participant participant : participants) {
+                int currencyBefore = participant.currency;
                 int dealerHandValue = PlayingCard.getBlackjackValue(dealerHand);
                 int participantHandValue = PlayingCard.getBlackjackValue(participant.hand);
-                if (participant.playingState == Participant.PlayingState.BANKRUPT || participant.playingState == Participant.PlayingState.LEFT) {
+                byte outcome;
+                if (participant.playingState == Participant.PlayingState.BANKRUPT || participant.playingState == Participant.PlayingState.LEFT || participant.playingState == Participant.PlayingState.SITTING_OUT) {
                     continue;
                 } else if (participant.handState == Participant.HandState.BUST) {
                     // every player that busts loses, regardless of the dealer.
                     participant.currency -= participant.bet;
+                    outcome = RoundHistory.BUST;
                 } else if (dealerHandState == Participant.HandState.BUST) {
                     participant.currency += participant.bet;
+                    outcome = RoundHistory.WIN;
                 } else if (dealerHandValue > participantHandValue) {
                     participant.currency -= participant.bet;
+                    outcome = RoundHistory.LOSE;
                 } else if (dealerHandValue == participantHandValue) {
                     int dealerHandSize = dealerHand.size();
                     int participantHandSize = participant.hand.size();
                     if (dealerHandSize == 2 && participantHandSize == 2) {
                         // tie.
+                        outcome = RoundHistory.PUSH;
                     } else if (dealerHandSize == 2) {
                         participant.currency -= participant.bet;
+                        outcome = RoundHistory.LOSE;
                     } else if (participantHandSize == 2) {
-                        participant.currency += (int) participant.bet * 1.5;
+                        participant.currency += participant.bet + participant.bet / 2; // 3:2, rounded down to whole currency
+                        outcome = RoundHistory.BLACKJACK;
                     } else {
                         // tie.
+                        outcome = RoundHistory.PUSH;
                     }
                 } else {
                     participant.currency += participant.bet;
+                    outcome = RoundHistory.WIN;
                 }
+                houseBalance += currencyBefore - participant.currency;
+                if (round != null) {
+                    round.addSeat(participant.USER_ID, participant.BOT, participant.bet, outcome, participant.currency - currencyBefore, participant.currency, participant.hand);
+                }
+            }
+            if (round != null) {
+                RoundHistory.publish(round);
             }
             return;
         }
 
-        public synchronized void sortParticipantsByCurrency() {
+        public long getHouseBalance() {
+            return houseBalance;
+        }
+
+        public void sortParticipantsByCurrency() {
             // sort the participants by their currency, so that they can be ordered in getParticipantText
             Collections.sort(participants, Collections.reverseOrder(Comparator.comparingInt(Participant::getCurrency)));
             return;
         }
 
+        // the odds of a participant's options, as seen by the participant. the dealer's hole card counts as unseen.
+        // the hint is only made again if something it depends on changed.
+        private Hint getHint(Participant participant) {
+            playingCardDealer.copyRankCounts(unseenRankCounts);
+            unseenRankCounts[dealerHand.get(0).getBlackjackRank()]++;
+            int upRank = dealerHand.get(1).getBlackjackRank();
+            BlackjackOdds.HandValue handValue = new BlackjackOdds.HandValue(participant.hand);
+            boolean doubleDown = handValue.TWO_CARDS && 2 * participant.bet <= participant.currency;
+            if (participant.hint == null || !participant.hint.isFor(unseenRankCounts, upRank, handValue, doubleDown)) {
+                participant.hint = new Hint(odds, unseenRankCounts, upRank, handValue, doubleDown);
+            }
+            return participant.hint;
+        }
+
         // used to return the component response necessary to update the game's message on discord to the current state.
-        public synchronized Interaction.CustomIDUpdatingResponse updateGameCustomIDUpdatingResponse(boolean newState) {
+        public Interaction.CustomIDUpdatingResponse updateGameCustomIDUpdatingResponse(boolean newState) {
+            if (deferringEdits) {
+                // coalesce renders it once it knows which click sends the edit
+                deferredNewState = deferredNewState || newState;
+                return DEFERRED_EDIT;
+            }
             Interaction.MessageResponse response = new Interaction.MessageResponse(7); // this means editing the original message
             response.data.flags = (int) Math.pow(2, 15);
             response.data.components = getGameComponents(this);
-            // if the state changes, start listening to new custom ids
-            if (newState) {
+            // if the state changes, start listening to new custom ids. this also catches up on state changes made by timeouts since the last render.
+            CustomIDListeningUpdate customIDListeningUpdate;
+            if (newState || stateVersion != renderedVersion) {
+                customIDListeningUpdate = getGameStateChangeCustomIDListeningUpdate(this, state, stateVersion, renderedState, renderedVersion);
+                renderedState = state;
+                renderedVersion = stateVersion;
+            } else {
+                customIDListeningUpdate = new CustomIDListeningUpdate(null, null, null, null);
+            }
+            return new Interaction.CustomIDUpdatingResponse(
+                response,
+                customIDListeningUpdate
+            );
+        }
+
+        // the interaction handlers go through this. the first click that edits the message gets its edit right away, and starts a window of EDIT_WINDOW_MILLIS.
+        // the clicks that edit within the window aren't rendered. the last of them sends one edit once the window is over, and the others only acknowledge.
+        // that edit is rendered after all of them, so it shows everything they changed, and its custom ids are the difference to the last sent edit,
+        // so they include what every click in the window started or stopped listening to.
+        // this returns null if the game went to sleep before the click got to its mailbox, see putVersionedHandler.
+        public Interaction.CustomIDUpdatingResponse coalesce(Supplier<Interaction.CustomIDUpdatingResponse> handler) {
+            lastActivityNanos = System.nanoTime();
+            Edit edit = call(() -> {
+                if (hibernated) {
+                    return null;
+                }
+                Interaction.CustomIDUpdatingResponse response;
+                deferringEdits = true;
+                try {
+                    response = handler.get();
+                } finally {
+                    deferringEdits = false;
+                }
+                if (response != DEFERRED_EDIT) {
+                    // nothing to edit, like a modal or an ephemeral message
+                    return new Edit(response, null);
+                }
+                long nowNanos = System.nanoTime();
+                if (pendingEdit == null && nowNanos - editWindowEndNanos >= 0) {
+                    return new Edit(renderDeferredEdit(nowNanos), null);
+                }
+                if (pendingEdit != null) {
+                    pendingEdit.complete(null);
+                }
+                pendingEdit = new CompletableFuture<Void>();
+                return new Edit(null, pendingEdit);
+            });
+            if (edit == null) {
+                return null;
+            } else if (edit.PENDING == null) {
+                return edit.RESPONSE;
+            }
+            try {
+                edit.PENDING.get(Math.max(0, call(() -> editWindowEndNanos) - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException timeoutException) {
+                // nobody clicked after this click
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException executionException) {
+                // it's only ever completed normally
+            }
+            Interaction.CustomIDUpdatingResponse toReturn = call(() -> {
+                if (pendingEdit != edit.PENDING || hibernated) {
+                    return null;
+                }
+                pendingEdit = null;
+                return renderDeferredEdit(System.nanoTime());
+            });
+            if (toReturn == null) {
+                COALESCED_EDITS.increment();
                 return new Interaction.CustomIDUpdatingResponse(
-                    response,
-                    getGameStateChangeCustomIDListeningUpdate(this, getState(), getLastState())
+                    new Interaction.MessageResponse(6), // acknowledge, a newer click sends the edit
+                    new CustomIDListeningUpdate(null, null, null, null)
                 );
+            }
+            return toReturn;
+        }
+
+        // runs on the mailbox
+        private Interaction.CustomIDUpdatingResponse renderDeferredEdit(long nowNanos) {
+            boolean newState = deferredNewState;
+            deferredNewState = false;
+            editWindowEndNanos = nowNanos + EDIT_WINDOW_MILLIS * 1000000L;
+            SENT_EDITS.increment();
+            return updateGameCustomIDUpdatingResponse(newState);
+        }
+
+        // the response that sends the game's message for the first time and starts listening to its custom ids
+        public Interaction.CustomIDUpdatingResponse openResponse() {
+            Interaction.MessageResponse response = new Interaction.MessageResponse(4);
+            setState(State.READY);
+            renderedState = state;
+            renderedVersion = stateVersion;
+            response.data.flags = (int) Math.pow(2, 15);
+            response.data.components = getGameComponents(this);
+            Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> componentNotificationStartListening
+                = new TreeMap<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>>();
+            componentNotificationStartListening.putAll(getGameComponentNotificationCustomIDNotificationFunctions(this, state, stateVersion));
+            return new Interaction.CustomIDUpdatingResponse(
+                response,
+                new CustomIDListeningUpdate(
+                    componentNotificationStartListening,
+                    null,
+                    null,
+                    null
+                )
+            );
+        }
+
+        // interactions for a state the game isn't in anymore end up here. if a timeout changed the state since the last render, the message is brought up to date.
+        // otherwise, nothing needs to be done: the custom ids of older states were already removed by the render that replaced them.
+        private Interaction.CustomIDUpdatingResponse wrongStateResponse() {
+            if (stateVersion != renderedVersion) {
+                return updateGameCustomIDUpdatingResponse(true);
             } else {
                 return new Interaction.CustomIDUpdatingResponse(
-                    response,
+                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
                     new CustomIDListeningUpdate(null, null, null, null)
                 );
             }
         }
 
-        public synchronized Interaction.ModalResponse bettingModalResponse(Participant participant) {
+        public Interaction.ModalResponse bettingModalResponse(Participant participant) {
             Interaction.ModalResponse response = new Interaction.ModalResponse();
-            response.data.customID = "bettingPhase betModal " + ID;
+            response.data.customID = "bettingPhase betModal " + ID + " " + stateVersion;
             response.data.title = "Place your bets";
             response.data.components = getBettingModalComponents(this, participant);
             return response;
@@ -362,64 +1119,55 @@ public class Blackjack {
 
         public Interaction.CustomIDUpdatingResponse readyJoinInteraction(ComponentInteraction componentInteraction) {
             GuildMember member = componentInteraction.MEMBER;
+            return coalesce(() -> readyJoin(member.USER.ID, member.USER.GLOBAL_NAME, member.getVisibleAvatarURL())); // this ignores server profile pictures
+        }
+
+        public Interaction.CustomIDUpdatingResponse readyJoin(long userID, String globalName, String avatarURL) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_JOIN, ID, userID, 0, globalName, avatarURL, null);
             if (state != State.READY) {
                 // users can only join in the ready phase. this case shouldn't occur, but if it does because of latency or so, just ignore it and stop listening
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"ready join " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(member.USER.ID) != null) {
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
                 // do nothing
                 return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6),
                     new CustomIDListeningUpdate(null, null, null, null)
                 );
             } else {
-                addParticipant(member);
+                addParticipant(userID, globalName, avatarURL);
                 return updateGameCustomIDUpdatingResponse(false);
             }
         }
 
         public Interaction.CustomIDUpdatingResponse readyLeaveInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> readyLeave(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse readyLeave(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_LEAVE, ID, userID);
             if (state != State.READY) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6),
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"ready leave " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (componentInteraction.MEMBER.USER.ID == host.USER.ID) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID) {
                 // the game ends when the host leaves
                 setState(State.FINISHED);
                 Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                 deleteGame();
                 return toReturn;
             } else {
-                removeParticipant(componentInteraction.MEMBER.USER.ID);
+                removeParticipant(userID);
                 return updateGameCustomIDUpdatingResponse(false);
             }
         }
 
         public Interaction.CustomIDUpdatingResponse readyStartInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> readyStart(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse readyStart(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_START, ID, userID);
             if (state != State.READY) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"ready start " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (componentInteraction.MEMBER.USER.ID == host.USER.ID) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID) {
                 setState(State.BETTING_PHASE);
                 return updateGameCustomIDUpdatingResponse(true);
             } else {
@@ -430,20 +1178,54 @@ public class Blackjack {
             }
         }
 
-        // pressing the bet button opens a modal. that modal can be used to input a number and uses a different interaction function.
-        public Interaction.CustomIDUpdatingResponse bettingPhaseBetButtonInteraction(ComponentInteraction componentInteraction) {
-            if (state != State.BETTING_PHASE) {
+        public Interaction.CustomIDUpdatingResponse readyAddBotInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> readyAddBot(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse readyAddBot(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_ADD_BOT, ID, userID);
+            if (state != State.READY) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID && addBot()) {
+                return updateGameCustomIDUpdatingResponse(false);
+            } else {
                 return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6),
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"bettingPhase betButton " + ID},
-                        null,
-                        null
-                    )
+                    new CustomIDListeningUpdate(null, null, null, null)
+                );
+            }
+        }
+
+        public Interaction.CustomIDUpdatingResponse readyToggleShuffleInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> readyToggleShuffle(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse readyToggleShuffle(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_TOGGLE_SHUFFLE, ID, userID);
+            if (state != State.READY) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID) {
+                playingCardDealer.setContinuousShuffle(!playingCardDealer.isContinuousShuffle());
+                return updateGameCustomIDUpdatingResponse(false);
+            } else {
+                return new Interaction.CustomIDUpdatingResponse(
+                    new Interaction.MessageResponse(6),
+                    new CustomIDListeningUpdate(null, null, null, null)
                 );
+            }
+        }
+
+        // pressing the bet button opens a modal. that modal can be used to input a number and uses a different interaction function.
+        public Interaction.CustomIDUpdatingResponse bettingPhaseBetButtonInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> bettingPhaseBetButton(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse bettingPhaseBetButton(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_BET_BUTTON, ID, userID);
+            if (state != State.BETTING_PHASE) {
+                return wrongStateResponse();
             } else {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                Participant participant = getParticipantByUserID(userID);
                 if (participant != null) {
                     return new Interaction.CustomIDUpdatingResponse(
                         bettingModalResponse(
@@ -461,22 +1243,19 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse bettingPhaseBetModalInteraction(ModalInteraction modalInteraction) {
+            return coalesce(() -> bettingPhaseBetModal(modalInteraction.MEMBER.USER.ID, modalInteraction.DATA.MODAL_COMPONENTS[0].MODAL_COMPONENT_SUBMISSION.VALUE));
+        }
+
+        public Interaction.CustomIDUpdatingResponse bettingPhaseBetModal(long userID, String input) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_BET_MODAL, ID, userID, 0, input, null, null);
             if (state != State.BETTING_PHASE) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6),
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"bettingPhase betModal " + ID}, 
-                        null, 
-                        null
-                    )
-                );
+                return wrongStateResponse();
             } else {
-                Participant participant = getParticipantByUserID(modalInteraction.MEMBER.USER.ID);
+                Participant participant = getParticipantByUserID(userID);
                 if (participant != null) {
                     int bettedValue = 0;
                     try {
-                        bettedValue = Integer.valueOf(modalInteraction.DATA.MODAL_COMPONENTS[0].MODAL_COMPONENT_SUBMISSION.VALUE);
+                        bettedValue = Integer.valueOf(input);
                     } catch (NumberFormatException numberFormatException) {
                         return new Interaction.CustomIDUpdatingResponse(
                             new Interaction.MessageResponse(6),
@@ -486,6 +1265,7 @@ public class Blackjack {
                     if (bettedValue > 0 && bettedValue <= participant.currency) {
                         participant.playingState = Participant.PlayingState.HAS_BET;
                         participant.bet = bettedValue;
+                        cancelTimeout(participant);
                     }
                     // this is the point where we switch state if everybody has betted
                     if (everybodyHasBetted()) {
@@ -505,17 +1285,14 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse bettingPhaseEndInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> bettingPhaseEnd(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse bettingPhaseEnd(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_BETTING_END, ID, userID);
             if (state != State.BETTING_PHASE) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"bettingPhase end " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (componentInteraction.MEMBER.USER.ID == host.USER.ID) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID) {
                 setState(State.FINISHED);
                 Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                 deleteGame();
@@ -529,24 +1306,26 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse bettingPhaseLeaveInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> bettingPhaseLeave(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse bettingPhaseLeave(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_BETTING_LEAVE, ID, userID);
             if (state != State.BETTING_PHASE) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"bettingPhase leave " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 participant.playingState = Participant.PlayingState.LEFT;
+                cancelTimeout(participant);
                 if (!activePlayersExist()) {
                     setState(State.FINISHED);
                     Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                     deleteGame();
                     return toReturn;
+                } else if (everybodyHasBetted() && someoneHasBet()) {
+                    // the participant who left might have been the last one the others were waiting for
+                    setState(State.IN_GAME);
+                    return updateGameCustomIDUpdatingResponse(true);
                 } else {
                     return updateGameCustomIDUpdatingResponse(false);
                 }
@@ -559,25 +1338,26 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse inGameHitInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> inGameHit(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameHit(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_HIT, ID, userID);
             if (state != State.IN_GAME) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"inGame hit " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 if (participant.handState == Participant.HandState.UNFINISHED) {
                     handOutCard(participant);
                     int handValue = PlayingCard.getBlackjackValue(participant.hand);
                     if (handValue > 21) {
                         participant.handState = Game.Participant.HandState.BUST;
+                        cancelTimeout(participant);
                     } else if (handValue == 21) {
                         participant.handState = Game.Participant.HandState.TWENTYONE;
+                        cancelTimeout(participant);
+                    } else {
+                        armMoveTimeout(participant);
                     }
                     if (someoneCanMakeAMove()) {
                         return updateGameCustomIDUpdatingResponse(false);
@@ -600,20 +1380,18 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse inGameStandInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> inGameStand(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameStand(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_STAND, ID, userID);
             if (state != State.IN_GAME) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"inGame stand " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 if (participant.handState == Participant.HandState.UNFINISHED) {
                     participant.handState = Participant.HandState.STAND;
+                    cancelTimeout(participant);
                     if (someoneCanMakeAMove()) {
                         return updateGameCustomIDUpdatingResponse(false);
                     } else {
@@ -635,18 +1413,15 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse inGameDoubleDownInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> inGameDoubleDown(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameDoubleDown(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_DOUBLE_DOWN, ID, userID);
             if (state != State.IN_GAME) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"inGame doubleDown " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 if (participant.handState == Participant.HandState.UNFINISHED && 2 * participant.bet <= participant.currency && participant.hand.size() == 2) {
                     participant.bet *= 2;
                     handOutCard(participant);
@@ -659,6 +1434,7 @@ public class Blackjack {
                         // after doubling down, you can't take any more cards.
                         participant.handState = Game.Participant.HandState.STAND;
                     }
+                    cancelTimeout(participant);
                     if (someoneCanMakeAMove()) {
                         return updateGameCustomIDUpdatingResponse(false);
                     } else {
@@ -679,25 +1455,76 @@ public class Blackjack {
             }
         }
 
-        public Interaction.CustomIDUpdatingResponse inGameLeaveInteraction(ComponentInteraction componentInteraction) {
+        // the hint is only shown to the participant who asked for it. its text is read after leaving the mailbox, so the other clicks on the table never wait for the odds.
+        public Interaction.CustomIDUpdatingResponse inGameHintInteraction(ComponentInteraction componentInteraction) {
+            Hint[] hint = new Hint[1];
+            Interaction.CustomIDUpdatingResponse toReturn = coalesce(() -> inGameHint(componentInteraction.MEMBER.USER.ID, hint));
+            return hint[0] == null ? toReturn : getHintResponse(hint[0]);
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameHint(long userID) {
+            Hint[] hint = new Hint[1];
+            Interaction.CustomIDUpdatingResponse toReturn = inGameHint(userID, hint);
+            return hint[0] == null ? toReturn : getHintResponse(hint[0]);
+        }
+
+        // if the participant gets a hint, it's put into hint and the caller makes the response, see getHintResponse
+        private Interaction.CustomIDUpdatingResponse inGameHint(long userID, Hint[] hint) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_HINT, ID, userID);
             if (state != State.IN_GAME) {
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
+                if (participant.handState == Participant.HandState.UNFINISHED) {
+                    hint[0] = getHint(participant);
+                    return null;
+                } else {
+                    return new Interaction.CustomIDUpdatingResponse(
+                        new Interaction.MessageResponse(6),
+                        new CustomIDListeningUpdate(null, null, null, null)
+                    );
+                }
+            } else {
                 return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"inGame leave " + ID},
-                        null,
-                        null
-                    )
+                    new Interaction.MessageResponse(6),
+                    new CustomIDListeningUpdate(null, null, null, null)
                 );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+            }
+        }
+
+        private static Interaction.CustomIDUpdatingResponse getHintResponse(Hint hint) {
+            Interaction.MessageResponse response = new Interaction.MessageResponse(4);
+            response.data.flags = (int) Math.pow(2, 6); // it's an ephemeral message that only the sender can see
+            response.data.content = hint.getText();
+            return new Interaction.CustomIDUpdatingResponse(
+                response,
+                new CustomIDListeningUpdate(null, null, null, null)
+            );
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameLeaveInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> inGameLeave(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameLeave(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_IN_GAME_LEAVE, ID, userID);
+            if (state != State.IN_GAME) {
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 participant.playingState = Participant.PlayingState.LEFT;
+                cancelTimeout(participant);
+                if (participant.handState == Participant.HandState.UNFINISHED) {
+                    participant.handState = Participant.HandState.STAND; // nobody has to wait for this hand anymore
+                }
                 if (!activePlayersExist()) {
                     setState(State.FINISHED);
                     Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                     deleteGame();
                     return toReturn;
+                } else if (!someoneCanMakeAMove()) {
+                    setState(State.RESULTS);
+                    return updateGameCustomIDUpdatingResponse(true);
                 } else {
                     return updateGameCustomIDUpdatingResponse(false);
                 }
@@ -710,17 +1537,14 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse inGameEndInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> inGameEnd(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse inGameEnd(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_IN_GAME_END, ID, userID);
             if (state != State.IN_GAME) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"inGame end " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (componentInteraction.MEMBER.USER.ID == host.USER.ID) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID) {
                 setState(State.FINISHED);
                 Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                 deleteGame();
@@ -734,19 +1558,17 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse resultsReadyUpInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> resultsReadyUp(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse resultsReadyUp(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_READY_UP, ID, userID);
             if (state != State.RESULTS) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"results readyUp " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 participant.ready = true;
+                cancelTimeout(participant);
                 if (activePlayersExist() && participantsStillToReadyUp() == 0) {
                     setState(State.BETTING_PHASE);
                     return updateGameCustomIDUpdatingResponse(true);
@@ -762,24 +1584,25 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse resultsLeaveInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> resultsLeave(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse resultsLeave(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_RESULTS_LEAVE, ID, userID);
             if (state != State.RESULTS) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"results leave " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (getParticipantByUserID(componentInteraction.MEMBER.USER.ID) != null) {
-                Participant participant = getParticipantByUserID(componentInteraction.MEMBER.USER.ID);
+                return wrongStateResponse();
+            } else if (getParticipantByUserID(userID) != null) {
+                Participant participant = getParticipantByUserID(userID);
                 participant.playingState = Participant.PlayingState.LEFT;
+                cancelTimeout(participant);
                 if (!activePlayersExist()) {
                     setState(State.FINISHED);
                     Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                     deleteGame();
                     return toReturn;
+                } else if (participantsStillToReadyUp() == 0) {
+                    setState(State.BETTING_PHASE);
+                    return updateGameCustomIDUpdatingResponse(true);
                 } else {
                     return updateGameCustomIDUpdatingResponse(false);
                 }
@@ -792,17 +1615,14 @@ public class Blackjack {
         }
 
         public Interaction.CustomIDUpdatingResponse resultsEndInteraction(ComponentInteraction componentInteraction) {
+            return coalesce(() -> resultsEnd(componentInteraction.MEMBER.USER.ID));
+        }
+
+        public Interaction.CustomIDUpdatingResponse resultsEnd(long userID) {
+            InteractionRecorder.record(InteractionRecorder.BLACKJACK_RESULTS_END, ID, userID);
             if (state != State.RESULTS) {
-                return new Interaction.CustomIDUpdatingResponse(
-                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
-                    new CustomIDListeningUpdate(
-                        null,
-                        new String[] {"results end " + ID},
-                        null,
-                        null
-                    )
-                );
-            } else if (componentInteraction.MEMBER.USER.ID == host.USER.ID) {
+                return wrongStateResponse();
+            } else if (userID == HOST_ID) {
                 setState(State.FINISHED);
                 Interaction.CustomIDUpdatingResponse toReturn = updateGameCustomIDUpdatingResponse(true);
                 deleteGame();
@@ -836,43 +1656,86 @@ public class Blackjack {
         return blackjack;
     }
 
-    public synchronized static Game createGame(String name, int decks, GuildMember host) {
+    // only for replays, see InteractionRecorder
+    public static synchronized void setSeed(long seed) {
+        RANDOM = new Random(seed);
+        return;
+    }
+
+    public static void setTimeoutsEnabled(boolean enabled) {
+        timeoutsEnabled = enabled;
+        return;
+    }
+
+    // hibernating games are open too
+    public static synchronized int openGames() {
+        return idToGame.size() + hibernatingIDs.size();
+    }
+
+    public static synchronized int hibernatingGames() {
+        return hibernatingIDs.size();
+    }
+
+    public static HibernationStore getHibernationStore() {
+        return hibernationStore;
+    }
+
+    // from now on, games that nobody clicked on for idleMillis are put to sleep in the directory, see Game.hibernateIfIdle.
+    // this is off by default, so that load tests and replays, which hold on to their games, don't lose them.
+    public static void startHibernation(String directory, long idleMillis) throws IOException {
+        hibernationStore = new HibernationStore(directory);
+        hibernateAfterNanos = idleMillis * 1000000L;
+        TIMING_WHEEL.schedule(Blackjack::sweepHibernation, Math.min(idleMillis, HIBERNATION_SWEEP_MILLIS));
+        return;
+    }
+
+    // runs on the timing wheel's thread, so it only posts to the games that could be idle, and the games decide on their mailboxes
+    private static void sweepHibernation() {
+        List<Game> games;
+        synchronized (Blackjack.class) {
+            games = new ArrayList<Game>(idToGame.values());
+        }
+        long nowNanos = System.nanoTime();
+        for (Game game : games) {
+            if (nowNanos - game.lastActivityNanos >= hibernateAfterNanos) {
+                game.post(game::hibernateIfIdle);
+            }
+        }
+        TIMING_WHEEL.schedule(Blackjack::sweepHibernation, Math.min(hibernateAfterNanos / 1000000L, HIBERNATION_SWEEP_MILLIS));
+        return;
+    }
+
+    public synchronized static Game createGame(String name, int decks, long hostID, String hostName, String hostAvatarURL) {
         long id;
         // this would be crazy
         while (true) {
             id = RANDOM.nextLong();
-            if (!idToGame.containsKey(id)) {
+            if (!idToGame.containsKey(id) && !hibernatingIDs.contains(id)) {
                 break;
             }
         }
-        Game game = new Game(id, decks, name, host);
+        Game game = new Game(id, decks, name, hostID, hostName, RANDOM.nextLong());
         idToGame.put(id, game);
-        game.addParticipant(host);
+        InteractionRecorder.record(InteractionRecorder.BLACKJACK_CREATE, id, hostID, decks, name, hostName, hostAvatarURL);
+        game.addParticipant(hostID, hostName, hostAvatarURL);
         return game;
     }
     
-    public synchronized static Component[] getGameComponents(Game game) {
+    public static Component[] getGameComponents(Game game) {
         if (game == null) {
             return null;
         } else {
             Game.State state = game.getState();
             if (state == Game.State.REGISTERED || state == Game.State.READY) { // on the first call, the state will only be registered, not ready
-                String[] participantGlobalNames = game.participantGlobalNames();
+                // the profiles have everything resolved already
+                List<Game.Participant> participants = game.getParticipants();
                 StringBuilder joinedPlayerListBuilder = new StringBuilder();
-                for (String participantGlobalName : participantGlobalNames) {
-                    joinedPlayerListBuilder.append("- " + participantGlobalName + "\\n");
-                }
-                String[] participantAvatars = game.participantAvatars();
-                MediaGallery.Item[] participantAvatarGalleryItems = new MediaGallery.Item[participantAvatars.length];
-                for (int i = 0; i < participantAvatars.length; i++) {
-                    String avatarURL;
-                    if (participantAvatars[i] == null) {
-                        avatarURL = Game.Participant.defaultAvatar;
-                    } else {
-                        avatarURL = participantAvatars[i];
-                    }
+                MediaGallery.Item[] participantAvatarGalleryItems = new MediaGallery.Item[participants.size()];
+                for (int i = 0; i < participants.size(); i++) {
+                    UserProfile profile = participants.get(i).PROFILE;
+                    joinedPlayerListBuilder.append(profile.PLAYER_LIST_LINE);
                     participantAvatarGalleryItems[i] = new MediaGallery.Item(
-                        new UnfurledMediaItem(avatarURL),
+                        new UnfurledMediaItem(profile.AVATAR_URL),
                         null,
                         false
                     );
@@ -889,11 +1752,11 @@ public class Blackjack {
                                         "**Blackjack**"
                                     ),
                                     new TextDisplay(
-                                        "-# Hosted by " + game.host.USER.GLOBAL_NAME
+                                        "-# Hosted by " + game.HOST_NAME
                                     )
                                 },
                                 new Button(
-                                    "ready start " + game.ID,
+                                    "ready start " + game.ID + " " + game.stateVersion,
                                     1,
                                     "Start(Host only)"
                                 )
@@ -914,14 +1777,24 @@ public class Blackjack {
                     new ActionRow(
                         new Component[] {
                             new Button(
-                                "ready join " + game.ID,
+                                "ready join " + game.ID + " " + game.stateVersion,
                                 1,
                                 "Join"
                             ),
                             new Button(
-                                "ready leave " + game.ID,
+                                "ready leave " + game.ID + " " + game.stateVersion,
                                 4,
                                 "Leave"
+                            ),
+                            new Button(
+                                "ready addBot " + game.ID + " " + game.stateVersion,
+                                2,
+                                "Add bot (Host only)"
+                            ),
+                            new Button(
+                                "ready toggleShuffle " + game.ID + " " + game.stateVersion,
+                                2,
+                                game.playingCardDealer.isContinuousShuffle() ? "Continuous shuffle: on (Host only)" : "Continuous shuffle: off (Host only)"
                             )
                         }
                     )
@@ -940,11 +1813,11 @@ public class Blackjack {
                                         "**Blackjack**"
                                     ),
                                     new TextDisplay(
-                                        "-# Hosted by " + game.host.USER.GLOBAL_NAME
+                                        "-# Hosted by " + game.HOST_NAME
                                     )
                                 },
                                 new Button(
-                                    "bettingPhase end " + game.ID,
+                                    "bettingPhase end " + game.ID + " " + game.stateVersion,
                                     4,
                                     "End (Host only)"
                                 )
@@ -962,12 +1835,12 @@ public class Blackjack {
                     new ActionRow(
                         new Component[] {
                             new Button(
-                                "bettingPhase betButton " + game.ID,
+                                "bettingPhase betButton " + game.ID + " " + game.stateVersion,
                                 1,
                                 "Bet"
                             ),
                             new Button(
-                                "bettingPhase leave " + game.ID,
+                                "bettingPhase leave " + game.ID + " " + game.stateVersion,
                                 4,
                                 "Leave"
                             )
@@ -988,11 +1861,11 @@ public class Blackjack {
                                         "**Blackjack**"
                                     ),
                                     new TextDisplay(
-                                        "-# Hosted by " + game.host.USER.GLOBAL_NAME
+                                        "-# Hosted by " + game.HOST_NAME
                                     )
                                 },
                                 new Button(
-                                    "inGame end " + game.ID,
+                                    "inGame end " + game.ID + " " + game.stateVersion,
                                     4,
                                     "End (Host only)"
                                 )
@@ -1002,7 +1875,7 @@ public class Blackjack {
                                 1
                             ),
                             new TextDisplay(
-                                "Cards left to deal: " + game.playingCardDealer.cardsLeft() + "/" + game.playingCardDealer.CARDS + " (reshuffle at 25%) \\n" + getParticipantText(game)
+                                getCardsLeftText(game) + " \\n" + getParticipantText(game)
                             )
                         },
                         13369344
@@ -1010,22 +1883,27 @@ public class Blackjack {
                     new ActionRow(
                         new Component[] {
                             new Button(
-                                "inGame hit " + game.ID,
+                                "inGame hit " + game.ID + " " + game.stateVersion,
                                 3,
                                 "Hit"
                             ),
                             new Button(
-                                "inGame stand " + game.ID,
+                                "inGame stand " + game.ID + " " + game.stateVersion,
                                 3,
                                 "Stand"
                             ),
                             new Button(
-                                "inGame doubleDown " + game.ID,
+                                "inGame doubleDown " + game.ID + " " + game.stateVersion,
                                 3,
                                 "Double Down"
                             ),
                             new Button(
-                                "inGame leave " + game.ID,
+                                "inGame hint " + game.ID + " " + game.stateVersion,
+                                2,
+                                "Hint"
+                            ),
+                            new Button(
+                                "inGame leave " + game.ID + " " + game.stateVersion,
                                 4,
                                 "Leave"
                             )
@@ -1046,11 +1924,11 @@ public class Blackjack {
                                         "**Blackjack**"
                                     ),
                                     new TextDisplay(
-                                        "-# Hosted by " + game.host.USER.GLOBAL_NAME
+                                        "-# Hosted by " + game.HOST_NAME
                                     )
                                 },
                                 new Button(
-                                    "results end " + game.ID,
+                                    "results end " + game.ID + " " + game.stateVersion,
                                     4,
                                     "End (Host only)"
                                 )
@@ -1060,7 +1938,7 @@ public class Blackjack {
                                 1
                             ),
                             new TextDisplay(
-                                "Cards left to deal: " + game.playingCardDealer.cardsLeft() + "/" + game.playingCardDealer.CARDS + " (reshuffle at 25%) \\n" + getParticipantText(game)
+                                getCardsLeftText(game) + " \\n" + getParticipantText(game)
                             )
                         },
                         13369344
@@ -1068,12 +1946,12 @@ public class Blackjack {
                     new ActionRow(
                         new Component[] {
                             new Button(
-                                "results readyUp " + game.ID,
+                                "results readyUp " + game.ID + " " + game.stateVersion,
                                 3,
                                 "Ready up"
                             ),
                             new Button(
-                                "results leave " + game.ID,
+                                "results leave " + game.ID + " " + game.stateVersion,
                                 4,
                                 "Leave"
                             )
@@ -1094,7 +1972,7 @@ public class Blackjack {
                                         "**Blackjack**"
                                     ),
                                     new TextDisplay(
-                                        "-# Hosted by " + game.host.USER.GLOBAL_NAME
+                                        "-# Hosted by " + game.HOST_NAME
                                     )
                                 },
                                 new Thumbnail(
@@ -1119,7 +1997,7 @@ public class Blackjack {
         }
     }
 
-    public static synchronized Component[] getBettingModalComponents(Game game, Game.Participant participant) {
+    public static Component[] getBettingModalComponents(Game game, Game.Participant participant) {
         if (game == null) {
             return null;
         } else {
@@ -1137,148 +2015,231 @@ public class Blackjack {
         }
     }
 
-    public static synchronized String getParticipantText(Game game) {
+    // with continuous shuffling, the played cards go back into the shoe after every round, so there's no cut card to reshuffle at
+    public static String getCardsLeftText(Game game) {
+        PlayingCardDealer playingCardDealer = game.playingCardDealer;
+        return "Cards left to deal: " + playingCardDealer.cardsLeft() + "/" + playingCardDealer.CARDS + (playingCardDealer.isContinuousShuffle() ? " (continuous shuffle)" : " (reshuffle at 25%)");
+    }
+
+    public static String getParticipantText(Game game) {
         if (game == null) {
             return null;
-        } else if (game.state == Game.State.BETTING_PHASE) {
-            StringBuilder toReturnBuilder = new StringBuilder();
+        }
+        StringBuilder builder = game.renderBuilder;
+        builder.setLength(0);
+        if (game.state == Game.State.BETTING_PHASE) {
             for (Game.Participant participant : game.participants) {
-                toReturnBuilder.append("**" + participant.MEMBER.USER.GLOBAL_NAME + "** (has " + participant.currency + ")\\n");
-                if (participant.playingState == Game.Participant.PlayingState.BANKRUPT) {
-                    toReturnBuilder.append("*Bankruptcy* - out of the game.\\n");
-                } else if (participant.playingState == Game.Participant.PlayingState.HAS_BET) {
-                    toReturnBuilder.append("Betting **" + participant.bet + "**\\n");
-                } else if (participant.playingState == Game.Participant.PlayingState.NOT_YET_BET) {
-                    toReturnBuilder.append("You still need to **bet**!\\n");
-                } else {
-                    toReturnBuilder.append("Left the game.\\n");
-                }
-                toReturnBuilder.append("\\n");
+                appendParticipantLine(builder, game, participant);
             }
-            return toReturnBuilder.toString();
+            return builder.toString();
         } else if (game.state == Game.State.IN_GAME) {
-            StringBuilder toReturnBuilder = new StringBuilder();
-            toReturnBuilder.append("**Dealer**\\n**Hand:** " + PlayingCard.back + game.dealerHand.get(1).getCharacter() + " (?, " + game.dealerHand.get(1).getFaceValueName() +  ")\\n");
+            PlayingCard dealerUpCard = game.dealerHand.get(1);
+            builder.append("**Dealer**\\n**Hand:** ").append(PlayingCard.back).append(dealerUpCard.getCharacter()).append(" (?, ").append(dealerUpCard.getFaceValueName()).append(")\\n");
             for (Game.Participant participant : game.participants) {
-                if (participant.playingState == Game.Participant.PlayingState.BANKRUPT) {
-                    toReturnBuilder.append("**" + participant.MEMBER.USER.GLOBAL_NAME + "** (has " + participant.currency + ")\\n");
-                    toReturnBuilder.append("*Bankruptcy* - out of the game.\\n");
-                } else if (participant.playingState == Game.Participant.PlayingState.HAS_BET) {
-                    toReturnBuilder.append("**" + participant.MEMBER.USER.GLOBAL_NAME + "** bets " + participant.bet + " (has " + participant.currency + ")\\n");
-                    toReturnBuilder.append("**Hand:** " + PlayingCard.getCharactersFromList(participant.hand) + " (" + PlayingCard.getFaceValueNamesFromList(participant.hand) + ")");
-                    if (participant.handState == Game.Participant.HandState.STAND) {
-                        toReturnBuilder.append(" **Standing.**");
-                    } else if (participant.handState == Game.Participant.HandState.TWENTYONE) {
-                        toReturnBuilder.append(" **Perfect Hand.**");
-                    } else if (participant.handState == Game.Participant.HandState.BUST) {
-                        toReturnBuilder.append(" **Bust.**");
-                    }
-                } else {
-                    toReturnBuilder.append("Left the game.");
-                }
-                toReturnBuilder.append("\\n");
+                appendParticipantLine(builder, game, participant);
             }
-            return toReturnBuilder.toString();
+            return builder.toString();
         } else if (game.state == Game.State.RESULTS) {
-            StringBuilder toReturnBuilder = new StringBuilder();
+            builder.append("**Dealer**\\n**Hand:** ");
+            PlayingCard.appendCharactersFromList(builder, game.dealerHand);
             if (game.dealerHandState == Game.Participant.HandState.BUST) {
-                toReturnBuilder.append("**Dealer**\\n**Hand:** " + PlayingCard.getCharactersFromList(game.dealerHand) + " **Bust.**\\n");
+                builder.append(" **Bust.**\\n");
             } else {
-                toReturnBuilder.append("**Dealer**\\n**Hand:** " + PlayingCard.getCharactersFromList(game.dealerHand) + "\\n");
+                builder.append("\\n");
             }
             for (Game.Participant participant : game.participants) {
-                if (participant.playingState == Game.Participant.PlayingState.BANKRUPT) {
-                    toReturnBuilder.append("**" + participant.MEMBER.USER.GLOBAL_NAME + "** (has " + participant.currency + ")\\n");
-                    // if the participant just turned bankrupt this round, we can still access their hand.
-                    toReturnBuilder.append("*Bankruptcy* - out of the game.\\n");
-                } else if (participant.playingState == Game.Participant.PlayingState.LEFT) {
-                    toReturnBuilder.append("Left the game.\\n");
-                } else {
-                    // we know for sure that at this point there is no player that hasn't betted.
-                    int dealerHandValue = PlayingCard.getBlackjackValue(game.dealerHand);
-                    int participantHandValue = PlayingCard.getBlackjackValue(participant.hand);
-                    toReturnBuilder.append("**" + participant.MEMBER.USER.GLOBAL_NAME + "** bet " + participant.bet + " (has " + participant.currency + ")\\n");
-                    toReturnBuilder.append("**Hand:** " + PlayingCard.getCharactersFromList(participant.hand)+ " (" + PlayingCard.getFaceValueNamesFromList(participant.hand) + ")");
-                    if (participant.handState == Game.Participant.HandState.BUST) {
-                        toReturnBuilder.append(" **Lose** - Bust.\\n");
-                    } else if (game.dealerHandState == Game.Participant.HandState.BUST) {
-                        toReturnBuilder.append(" **Win** - Dealer bust.\\n");
-                    } else if (dealerHandValue > participantHandValue) {
-                        toReturnBuilder.append(" **Lose** - Lower than dealer.\\n");
-                    } else if (dealerHandValue == participantHandValue) {
-                        int dealerHandSize = game.dealerHand.size();
-                        int participantHandSize = participant.hand.size();
-                        if (dealerHandSize == 2 && participantHandSize == 2) {
-                            toReturnBuilder.append(" **Tie** - Equal to dealer.\\n");
-                        } else if (dealerHandSize == 2) {
-                            toReturnBuilder.append(" **Lose** - Dealer has Blackjack.\\n");
-                        } else if (participantHandSize == 2) {
-                            toReturnBuilder.append(" **Win** - Player has Blackjack.\\n");
-                        } else {
-                            toReturnBuilder.append(" **Tie** - Equal to dealer.\\n");
-                        }
-                    } else {
-                        toReturnBuilder.append(" **Win** - Higher than dealer.\\n");
-                    }
-                }
-                toReturnBuilder.append("\\n");
+                appendParticipantLine(builder, game, participant);
             }
             int peopleWhoStillNeedToReadyUp = game.participantsStillToReadyUp();
             if (!game.activePlayersExist()) {
-                toReturnBuilder.append("There are no active players left!");
+                builder.append("There are no active players left!");
             } else {
-                toReturnBuilder.append("To start a new round, **" + peopleWhoStillNeedToReadyUp + "** must still ready up.");
+                builder.append("To start a new round, **").append(peopleWhoStillNeedToReadyUp).append("** must still ready up.");
             }
-            return toReturnBuilder.toString();
+            return builder.toString();
         } else if (game.state == Game.State.FINISHED) {
-            StringBuilder toReturnBuilder = new StringBuilder();
             // we know at this point that the list of participants has already been sorted by currency
             Game.Participant currentParticipant;
             for (int i = 0; i < game.participants.size(); i++) {
                 currentParticipant = game.participants.get(i);
-                toReturnBuilder.append("**" + (i + 1) + ". " + currentParticipant.MEMBER.USER.GLOBAL_NAME + ": " + currentParticipant.currency + " **\\n");
+                builder.append("**").append(i + 1).append(". ").append(currentParticipant.PROFILE.GLOBAL_NAME).append(": ").append(currentParticipant.currency).append(" **\\n");
             }
-            return toReturnBuilder.toString();
+            return builder.toString();
         } else {
             return null;
         }
     }
 
+    // appends the participant's part of getParticipantText. if nothing about the participant changed since the last render, the last line is reused.
+    private static void appendParticipantLine(StringBuilder builder, Game game, Game.Participant participant) {
+        if (participant.hasCachedLine(game.state)) {
+            builder.append(participant.cachedLine);
+            return;
+        }
+        int lineStart = builder.length();
+        if (game.state == Game.State.BETTING_PHASE) {
+            builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** (has ").append(participant.currency).append(")\\n");
+            if (participant.playingState == Game.Participant.PlayingState.BANKRUPT) {
+                builder.append("*Bankruptcy* - out of the game.\\n");
+            } else if (participant.playingState == Game.Participant.PlayingState.HAS_BET) {
+                builder.append("Betting **").append(participant.bet).append("**\\n");
+            } else if (participant.playingState == Game.Participant.PlayingState.NOT_YET_BET) {
+                builder.append("You still need to **bet**!\\n");
+            } else if (participant.playingState == Game.Participant.PlayingState.SITTING_OUT) {
+                builder.append("Sitting this round out.\\n");
+            } else {
+                builder.append("Left the game.\\n");
+            }
+            builder.append("\\n");
+        } else if (game.state == Game.State.IN_GAME) {
+            if (participant.playingState == Game.Participant.PlayingState.BANKRUPT) {
+                builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** (has ").append(participant.currency).append(")\\n");
+                builder.append("*Bankruptcy* - out of the game.\\n");
+            } else if (participant.playingState == Game.Participant.PlayingState.HAS_BET) {
+                builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** bets ").append(participant.bet).append(" (has ").append(participant.currency).append(")\\n");
+                builder.append("**Hand:** ");
+                PlayingCard.appendCharactersFromList(builder, participant.hand);
+                builder.append(" (");
+                PlayingCard.appendFaceValueNamesFromList(builder, participant.hand);
+                builder.append(")");
+                if (participant.handState == Game.Participant.HandState.STAND) {
+                    builder.append(" **Standing.**");
+                } else if (participant.handState == Game.Participant.HandState.TWENTYONE) {
+                    builder.append(" **Perfect Hand.**");
+                } else if (participant.handState == Game.Participant.HandState.BUST) {
+                    builder.append(" **Bust.**");
+                }
+            } else if (participant.playingState == Game.Participant.PlayingState.SITTING_OUT) {
+                builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** is sitting this round out.");
+            } else {
+                builder.append("Left the game.");
+            }
+            builder.append("\\n");
+        } else if (game.state == Game.State.RESULTS) {
+            if (participant.playingState == Game.Participant.PlayingState.BANKRUPT) {
+                builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** (has ").append(participant.currency).append(")\\n");
+                // if the participant just turned bankrupt this round, we can still access their hand.
+                builder.append("*Bankruptcy* - out of the game.\\n");
+            } else if (participant.playingState == Game.Participant.PlayingState.LEFT) {
+                builder.append("Left the game.\\n");
+            } else if (participant.playingState == Game.Participant.PlayingState.SITTING_OUT) {
+                builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** sat this round out.\\n");
+            } else {
+                // we know for sure that at this point there is no player that hasn't betted.
+                int dealerHandValue = PlayingCard.getBlackjackValue(game.dealerHand);
+                int participantHandValue = PlayingCard.getBlackjackValue(participant.hand);
+                builder.append("**").append(participant.PROFILE.GLOBAL_NAME).append("** bet ").append(participant.bet).append(" (has ").append(participant.currency).append(")\\n");
+                builder.append("**Hand:** ");
+                PlayingCard.appendCharactersFromList(builder, participant.hand);
+                builder.append(" (");
+                PlayingCard.appendFaceValueNamesFromList(builder, participant.hand);
+                builder.append(")");
+                if (participant.handState == Game.Participant.HandState.BUST) {
+                    builder.append(" **Lose** - Bust.\\n");
+                } else if (game.dealerHandState == Game.Participant.HandState.BUST) {
+                    builder.append(" **Win** - Dealer bust.\\n");
+                } else if (dealerHandValue > participantHandValue) {
+                    builder.append(" **Lose** - Lower than dealer.\\n");
+                } else if (dealerHandValue == participantHandValue) {
+                    int dealerHandSize = game.dealerHand.size();
+                    int participantHandSize = participant.hand.size();
+                    if (dealerHandSize == 2 && participantHandSize == 2) {
+                        builder.append(" **Tie** - Equal to dealer.\\n");
+                    } else if (dealerHandSize == 2) {
+                        builder.append(" **Lose** - Dealer has Blackjack.\\n");
+                    } else if (participantHandSize == 2) {
+                        builder.append(" **Win** - Player has Blackjack.\\n");
+                    } else {
+                        builder.append(" **Tie** - Equal to dealer.\\n");
+                    }
+                } else {
+                    builder.append(" **Win** - Higher than dealer.\\n");
+                }
+            }
+            builder.append("\\n");
+        }
+        participant.cacheLine(game.state, builder.substring(lineStart));
+        return;
+    }
+
+    // the custom id is the action, the game's id and the version of the state it's rendered for. a click with an older version than the game's
+    // is answered right away, as long as the message already shows the current state. otherwise, it's answered with an update of the message.
+    // the handler only holds the game's handle, and wakes the game up if it hibernates.
+    private static <T> void putVersionedHandler(Map<String, Function<T, Interaction.CustomIDUpdatingResponse>> map, Game game, int version, String action, BiFunction<Game, T, Interaction.CustomIDUpdatingResponse> handler) {
+        GameHandle handle = game.HANDLE;
+        map.put(action + " " + game.ID + " " + version, interaction -> {
+            while (true) {
+                Game currentGame = handle.awaken();
+                if (currentGame == null) {
+                    return new Interaction.CustomIDUpdatingResponse(
+                        new Interaction.MessageResponse(6), // acknowledge, the game is gone
+                        new CustomIDListeningUpdate(null, null, null, null)
+                    );
+                }
+                Interaction.CustomIDUpdatingResponse toReturn = getVersionedResponse(currentGame, version, handler, interaction);
+                // null means that the game went to sleep before the click got to its mailbox, so it's woken up again
+                if (toReturn != null) {
+                    return toReturn;
+                }
+            }
+        });
+        return;
+    }
+
+    private static <T> Interaction.CustomIDUpdatingResponse getVersionedResponse(Game game, int version, BiFunction<Game, T, Interaction.CustomIDUpdatingResponse> handler, T interaction) {
+        int currentVersion = game.stateVersion;
+        if (version == currentVersion) {
+            return handler.apply(game, interaction);
+        } else if (game.renderedVersion == currentVersion) {
+            STALE_CLICKS.increment();
+            return new Interaction.CustomIDUpdatingResponse(
+                new Interaction.MessageResponse(6), // acknowledge but don't do anything
+                new CustomIDListeningUpdate(null, null, null, null)
+            );
+        } else {
+            return game.coalesce(game::wrongStateResponse);
+        }
+    }
+
     // this returns a map of the necessary custom id notification functions the game has to listen to during a specific state
-    private static Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> getGameComponentNotificationCustomIDNotificationFunctions(Game game, Game.State state) {
+    private static Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> getGameComponentNotificationCustomIDNotificationFunctions(Game game, Game.State state, int version) {
         Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> toReturn
             = new TreeMap<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>>();
         if (state == Game.State.REGISTERED || state == Game.State.READY) {
-            toReturn.put("ready join " + game.ID, game::readyJoinInteraction);
-            toReturn.put("ready leave " + game.ID, game::readyLeaveInteraction);
-            toReturn.put("ready start " + game.ID, game::readyStartInteraction);
+            putVersionedHandler(toReturn, game, version, "ready join", Game::readyJoinInteraction);
+            putVersionedHandler(toReturn, game, version, "ready leave", Game::readyLeaveInteraction);
+            putVersionedHandler(toReturn, game, version, "ready start", Game::readyStartInteraction);
+            putVersionedHandler(toReturn, game, version, "ready addBot", Game::readyAddBotInteraction);
+            putVersionedHandler(toReturn, game, version, "ready toggleShuffle", Game::readyToggleShuffleInteraction);
         } else if (state == Game.State.BETTING_PHASE) {
-            toReturn.put("bettingPhase betButton " + game.ID, game::bettingPhaseBetButtonInteraction);
-            toReturn.put("bettingPhase leave " + game.ID, game::bettingPhaseLeaveInteraction);
-            toReturn.put("bettingPhase end " + game.ID, game::bettingPhaseEndInteraction);
+            putVersionedHandler(toReturn, game, version, "bettingPhase betButton", Game::bettingPhaseBetButtonInteraction);
+            putVersionedHandler(toReturn, game, version, "bettingPhase leave", Game::bettingPhaseLeaveInteraction);
+            putVersionedHandler(toReturn, game, version, "bettingPhase end", Game::bettingPhaseEndInteraction);
         } else if (state == Game.State.IN_GAME) {
-            toReturn.put("inGame hit " + game.ID, game::inGameHitInteraction);
-            toReturn.put("inGame stand " + game.ID, game::inGameStandInteraction);
-            toReturn.put("inGame doubleDown " + game.ID, game::inGameDoubleDownInteraction);
-            toReturn.put("inGame leave " + game.ID, game::inGameLeaveInteraction);
-            toReturn.put("inGame end " + game.ID, game::inGameEndInteraction);
+            putVersionedHandler(toReturn, game, version, "inGame hit", Game::inGameHitInteraction);
+            putVersionedHandler(toReturn, game, version, "inGame stand", Game::inGameStandInteraction);
+            putVersionedHandler(toReturn, game, version, "inGame doubleDown", Game::inGameDoubleDownInteraction);
+            putVersionedHandler(toReturn, game, version, "inGame hint", Game::inGameHintInteraction);
+            putVersionedHandler(toReturn, game, version, "inGame leave", Game::inGameLeaveInteraction);
+            putVersionedHandler(toReturn, game, version, "inGame end", Game::inGameEndInteraction);
         } else if (state == Game.State.RESULTS) {
-            toReturn.put("results readyUp " + game.ID, game::resultsReadyUpInteraction);
-            toReturn.put("results leave " + game.ID, game::resultsLeaveInteraction);
-            toReturn.put("results end " + game.ID, game::resultsEndInteraction);
+            putVersionedHandler(toReturn, game, version, "results readyUp", Game::resultsReadyUpInteraction);
+            putVersionedHandler(toReturn, game, version, "results leave", Game::resultsLeaveInteraction);
+            putVersionedHandler(toReturn, game, version, "results end", Game::resultsEndInteraction);
         } else if (state == Game.State.FINISHED) {
 
         }
-        return toReturn;
+        // mashing is turned away before it gets to the handle or the mailbox
+        return ClickLimiter.CLICKS.wrap(toReturn, game.ID);
     }
     
-    private static Map<String, Function<ModalInteraction, Interaction.CustomIDUpdatingResponse>> getGameModalNotificationCustomIDNotificationFunctions(Game game, Game.State state) {
+    private static Map<String, Function<ModalInteraction, Interaction.CustomIDUpdatingResponse>> getGameModalNotificationCustomIDNotificationFunctions(Game game, Game.State state, int version) {
         Map<String, Function<ModalInteraction, Interaction.CustomIDUpdatingResponse>> toReturn
             = new TreeMap<String, Function<ModalInteraction, Interaction.CustomIDUpdatingResponse>>();
         if (state == Game.State.REGISTERED || state == Game.State.READY) {
             
         } else if (state == Game.State.BETTING_PHASE) {
-            toReturn.put("bettingPhase betModal " + game.ID, game::bettingPhaseBetModalInteraction);
+            putVersionedHandler(toReturn, game, version, "bettingPhase betModal", Game::bettingPhaseBetModalInteraction);
         } else if (state == Game.State.IN_GAME) {
 
         } else if (state == Game.State.RESULTS) {
@@ -1290,17 +2251,17 @@ public class Blackjack {
     }
 
     // returns a CustomIDListeningUpdate for switchting between game states.
-    private static CustomIDListeningUpdate getGameStateChangeCustomIDListeningUpdate(Game game, Game.State newState, Game.State oldState) {
+    private static CustomIDListeningUpdate getGameStateChangeCustomIDListeningUpdate(Game game, Game.State newState, int newVersion, Game.State oldState, int oldVersion) {
         Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> state1ComponentNotificationCustomIDs
-            = getGameComponentNotificationCustomIDNotificationFunctions(game, oldState);
+            = getGameComponentNotificationCustomIDNotificationFunctions(game, oldState, oldVersion);
         Map<String, Function<ModalInteraction, Interaction.CustomIDUpdatingResponse>> state1ModalNotificationCustomIDs
-            = getGameModalNotificationCustomIDNotificationFunctions(game, oldState);
+            = getGameModalNotificationCustomIDNotificationFunctions(game, oldState, oldVersion);
         Set<String> state1ComponentNotificationCustomIDSet = state1ComponentNotificationCustomIDs.keySet();
         Set<String> state1ModalNotificationCustomIDSet = state1ModalNotificationCustomIDs.keySet();
         Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> state2ComponentNotificationCustomIDs
-            = getGameComponentNotificationCustomIDNotificationFunctions(game, newState);
+            = getGameComponentNotificationCustomIDNotificationFunctions(game, newState, newVersion);
         Map<String, Function<ModalInteraction, Interaction.CustomIDUpdatingResponse>> state2ModalNotificationCustomIDs
-            = getGameModalNotificationCustomIDNotificationFunctions(game, newState);
+            = getGameModalNotificationCustomIDNotificationFunctions(game, newState, newVersion);
         CustomIDListeningUpdate toReturn = new CustomIDListeningUpdate(
             state2ComponentNotificationCustomIDs,
             state1ComponentNotificationCustomIDSet.toArray(new String[state1ComponentNotificationCustomIDSet.size()]),
@@ -1311,10 +2272,21 @@ public class Blackjack {
     }
     
     public static Interaction.CustomIDUpdatingResponse startGame(SlashCommandInteraction slashCommandInteraction) {
+        GuildMember host = slashCommandInteraction.MEMBER;
+        return startGame(
+            slashCommandInteraction.DATA.OPTIONS[0].STRING_VALUE,
+            slashCommandInteraction.DATA.OPTIONS[1].STRING_VALUE,
+            host.USER.ID,
+            host.USER.GLOBAL_NAME,
+            host.getVisibleAvatarURL()
+        );
+    }
+
+    public static Interaction.CustomIDUpdatingResponse startGame(String name, String decksInput, long hostID, String hostName, String hostAvatarURL) {
         Interaction.MessageResponse response = new Interaction.MessageResponse(4);
         int decks;
         try {
-            decks = Integer.valueOf(slashCommandInteraction.DATA.OPTIONS[1].STRING_VALUE);
+            decks = Integer.valueOf(decksInput);
         } catch (NumberFormatException numberFormatException) {
             response.data.flags = (int) Math.pow(2, 6); // it's an ephemeral message that only the sender of the command can see
             response.data.content = "You need to enter a positive integer between " + Blackjack.MIN_DECKS + " and " + Blackjack.MAX_DECKS;
@@ -1332,24 +2304,12 @@ public class Blackjack {
             );
         }
         Game newGame = createGame(
-            slashCommandInteraction.DATA.OPTIONS[0].STRING_VALUE,
+            name,
             decks,
-            slashCommandInteraction.MEMBER
-        );
-        newGame.setState(Game.State.READY);
-        response.data.flags = (int) Math.pow(2, 15);
-        response.data.components = getGameComponents(newGame);
-        Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> componentNotificationStartListening
-            = new TreeMap<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>>();
-        componentNotificationStartListening.putAll(getGameComponentNotificationCustomIDNotificationFunctions(newGame, newGame.getState()));
-        return new Interaction.CustomIDUpdatingResponse(
-            response,
-            new CustomIDListeningUpdate(
-                componentNotificationStartListening,
-                null,
-                null,
-                null
-            )
+            hostID,
+            hostName,
+            hostAvatarURL
         );
+        return newGame.call(newGame::openResponse);
     }
-}
\ No newline at end of file
+}
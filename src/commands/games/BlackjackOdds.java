@@ -0,0 +1,310 @@
+package commands.games;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// computes exact odds for a round of blackjack from the composition of the cards a player hasn't seen yet.
+// compositions are counts of every blackjack rank (see PlayingCard.getBlackjackRank), and the payouts are the same as in Blackjack.Game.evaluateRound.
+// the dealer's outcomes are a dynamic program over the dealer's hand and the composition it draws from. during one question, every hand the dealer can reach
+// is worked out once per composition, no matter how many hands of the player or hole cards lead to it. those are only scratch and are dropped after the question,
+// since there are too many of them to keep. what is kept are the dealer's outcomes from the up card and the expected values of hitting, by composition and up card,
+// so asking again during the same round is almost free, and a new up card doesn't throw anything away.
+// this isn't thread safe. every game should have its own instance and only use it from the game's mailbox.
+public class BlackjackOdds {
+    // the dealer outcomes. a dealer that stands with two cards is separated from one that stands with more, since that decides ties.
+    public static final int OUTCOME_BELOW_17 = 0; // only happens if the shoe runs out
+    public static final int OUTCOME_TWO_CARDS = 6; // add this to the outcome if the dealer stands with two cards
+    public static final int OUTCOME_BUST = 12;
+    public static final int OUTCOMES = 13;
+
+    private static final int RANKS = PlayingCardDealer.BLACKJACK_RANKS;
+    private static final int MAX_MEMOIZED_COMPOSITIONS = 20000; // the memo is cleared when it grows beyond this, which keeps it to a few megabytes
+    // the dealer's hands that still draw: hard totals up to 16, with or without an ace, and one, two, or more cards. see getDealerState.
+    private static final int DEALER_STATES = 17 * 2 * 3;
+    private static final int HIT_STATES = 22 * 2; // the player's hard total and whether there's an ace
+
+    private final Map<Long, double[][]> dealerOutcomeMemo = new HashMap<Long, double[][]>(); // composition -> up card -> outcome probabilities
+    private Map<Long, double[][]> dealerStateMemo = new HashMap<Long, double[][]>(); // composition -> dealer hand -> outcome probabilities, for one question
+    private final Map<Long, double[][]> hitMemo = new HashMap<Long, double[][]>(); // composition -> up card -> player hand -> expected value of hitting
+    private final int[] counts = new int[RANKS]; // the composition that is being worked on
+
+    public static class HandValue {
+        public final int HARD_TOTAL; // aces counted as 1
+        public final boolean HAS_ACE;
+        public final boolean TWO_CARDS;
+
+        public HandValue(List<PlayingCard> hand) {
+            int hardTotal = 0;
+            boolean hasAce = false;
+            for (PlayingCard playingCard : hand) {
+                int rank = playingCard.getBlackjackRank();
+                hardTotal += rank + 1;
+                if (rank == 0) {
+                    hasAce = true;
+                }
+            }
+            this.HARD_TOTAL = hardTotal;
+            this.HAS_ACE = hasAce;
+            this.TWO_CARDS = hand.size() == 2;
+        }
+
+        public HandValue(int hardTotal, boolean hasAce, boolean twoCards) {
+            this.HARD_TOTAL = hardTotal;
+            this.HAS_ACE = hasAce;
+            this.TWO_CARDS = twoCards;
+        }
+
+        public int getValue() {
+            return BlackjackOdds.getValue(HARD_TOTAL, HAS_ACE);
+        }
+
+        public boolean isSoft() {
+            return HAS_ACE && HARD_TOTAL + 10 <= 21;
+        }
+    }
+
+    // one ace can count as 11 without busting, any more would always bust
+    private static int getValue(int hardTotal, boolean hasAce) {
+        if (hasAce && hardTotal + 10 <= 21) {
+            return hardTotal + 10;
+        } else {
+            return hardTotal;
+        }
+    }
+
+    public static int getOutcomeValue(int outcome) {
+        return (outcome % OUTCOME_TWO_CARDS) + 16;
+    }
+
+    // this supports compositions of up to 15 decks, since every count has to fit into its bits
+    private static long getCompositionKey(int[] composition) {
+        long key = 0L;
+        for (int rank = 0; rank < RANKS - 1; rank++) {
+            key = (key << 6) | composition[rank];
+        }
+        return (key << 8) | composition[RANKS - 1];
+    }
+
+    private static int getRemaining(int[] composition) {
+        int remaining = 0;
+        for (int rank = 0; rank < RANKS; rank++) {
+            remaining += composition[rank];
+        }
+        return remaining;
+    }
+
+    public void clear() {
+        dealerOutcomeMemo.clear();
+        dealerStateMemo.clear();
+        hitMemo.clear();
+        return;
+    }
+
+    private void prepare(int[] unseen) {
+        if (dealerOutcomeMemo.size() > MAX_MEMOIZED_COMPOSITIONS || hitMemo.size() > MAX_MEMOIZED_COMPOSITIONS) {
+            clear();
+        }
+        System.arraycopy(unseen, 0, counts, 0, RANKS);
+        return;
+    }
+
+    // a new map instead of clearing the old one, since clearing keeps its table as large as it ever was
+    private void finish() {
+        if (!dealerStateMemo.isEmpty()) {
+            dealerStateMemo = new HashMap<Long, double[][]>();
+        }
+        return;
+    }
+
+    // the probabilities of every dealer outcome when the dealer shows upRank and the hole card is one of the unseen cards.
+    // the returned array is shared with the memo and must not be changed.
+    public double[] getDealerOutcomeProbabilities(int[] unseen, int upRank) {
+        prepare(unseen);
+        double[] toReturn = getDealerOutcomes(upRank);
+        finish();
+        return toReturn;
+    }
+
+    public double getStandExpectedValue(int[] unseen, int upRank, HandValue hand) {
+        prepare(unseen);
+        double toReturn = getStandValue(hand.getValue(), hand.TWO_CARDS, getDealerOutcomes(upRank));
+        finish();
+        return toReturn;
+    }
+
+    // the expected value of taking one card and then continuing with the best play
+    public double getHitExpectedValue(int[] unseen, int upRank, HandValue hand) {
+        prepare(unseen);
+        double toReturn = getHitValue(hand.HARD_TOTAL, hand.HAS_ACE, upRank);
+        finish();
+        return toReturn;
+    }
+
+    // doubling down doubles the bet and takes exactly one card. the value is in units of the original bet.
+    public double getDoubleDownExpectedValue(int[] unseen, int upRank, HandValue hand) {
+        prepare(unseen);
+        int remaining = getRemaining(counts);
+        double toReturn = 0;
+        if (remaining == 0) {
+            toReturn = getStandValue(hand.getValue(), hand.TWO_CARDS, getDealerOutcomes(upRank));
+        }
+        for (int rank = 0; rank < RANKS; rank++) {
+            if (counts[rank] == 0) {
+                continue;
+            }
+            double probability = (double) counts[rank] / remaining;
+            int hardTotal = hand.HARD_TOTAL + rank + 1;
+            boolean hasAce = hand.HAS_ACE || rank == 0;
+            int value = getValue(hardTotal, hasAce);
+            counts[rank]--;
+            if (value > 21) {
+                toReturn -= probability;
+            } else {
+                toReturn += probability * getStandValue(value, false, getDealerOutcomes(upRank));
+            }
+            counts[rank]++;
+        }
+        finish();
+        return 2 * toReturn;
+    }
+
+    // the dealer only has the up card before drawing the hole card
+    private double[] getDealerOutcomes(int upRank) {
+        long key = getCompositionKey(counts);
+        double[][] memo = dealerOutcomeMemo.get(key);
+        if (memo == null) {
+            memo = new double[RANKS][];
+            dealerOutcomeMemo.put(key, memo);
+        } else if (memo[upRank] != null) {
+            return memo[upRank];
+        }
+        memo[upRank] = getDealerOutcomes(upRank + 1, upRank == 0, 1);
+        return memo[upRank];
+    }
+
+    // a dealer's hand that still draws. only whether it has one, two or more cards matters, since two cards decide ties.
+    private static int getDealerState(int hardTotal, boolean hasAce, int cards) {
+        return ((hardTotal * 2) + (hasAce ? 1 : 0)) * 3 + Math.min(cards, 3) - 1;
+    }
+
+    // the outcome probabilities of a dealer who holds this hand and draws from counts until reaching at least 17, just like Game.finalDealing
+    private double[] getDealerOutcomes(int hardTotal, boolean hasAce, int cards) {
+        long key = getCompositionKey(counts);
+        double[][] memo = dealerStateMemo.get(key);
+        int state = getDealerState(hardTotal, hasAce, cards);
+        if (memo == null) {
+            memo = new double[DEALER_STATES][];
+            dealerStateMemo.put(key, memo);
+        } else if (memo[state] != null) {
+            return memo[state];
+        }
+        double[] outcomes = new double[OUTCOMES];
+        int remaining = getRemaining(counts);
+        if (remaining == 0) {
+            outcomes[OUTCOME_BELOW_17] = 1;
+        }
+        for (int rank = 0; rank < RANKS; rank++) {
+            if (counts[rank] == 0) {
+                continue;
+            }
+            double probability = (double) counts[rank] / remaining;
+            int nextHardTotal = hardTotal + rank + 1;
+            boolean nextHasAce = hasAce || rank == 0;
+            int value = getValue(nextHardTotal, nextHasAce);
+            if (value > 21) {
+                outcomes[OUTCOME_BUST] += probability;
+            } else if (cards + 1 >= 2 && value >= 17) {
+                outcomes[value - 16 + (cards + 1 == 2 ? OUTCOME_TWO_CARDS : 0)] += probability;
+            } else {
+                counts[rank]--;
+                double[] nextOutcomes = getDealerOutcomes(nextHardTotal, nextHasAce, cards + 1);
+                counts[rank]++;
+                for (int outcome = 0; outcome < OUTCOMES; outcome++) {
+                    outcomes[outcome] += probability * nextOutcomes[outcome];
+                }
+            }
+        }
+        memo[state] = outcomes;
+        return outcomes;
+    }
+
+    // the expected payout in units of the bet, with the same rules as Game.evaluateRound
+    private static double getStandValue(int playerValue, boolean playerTwoCards, double[] dealerOutcomes) {
+        if (playerValue > 21) {
+            return -1;
+        }
+        double toReturn = dealerOutcomes[OUTCOME_BUST];
+        for (int outcome = 0; outcome < OUTCOME_BUST; outcome++) {
+            double probability = dealerOutcomes[outcome];
+            if (probability == 0) {
+                continue;
+            }
+            int dealerValue = getOutcomeValue(outcome);
+            boolean dealerTwoCards = outcome >= OUTCOME_TWO_CARDS;
+            if (dealerValue > playerValue) {
+                toReturn -= probability;
+            } else if (dealerValue == playerValue) {
+                if (dealerTwoCards && playerTwoCards) {
+                    // tie.
+                } else if (dealerTwoCards) {
+                    toReturn -= probability;
+                } else if (playerTwoCards) {
+                    toReturn += 1.5 * probability;
+                } else {
+                    // tie.
+                }
+            } else {
+                toReturn += probability;
+            }
+        }
+        return toReturn;
+    }
+
+    private double getHitValue(int hardTotal, boolean hasAce, int upRank) {
+        long key = getCompositionKey(counts);
+        double[][] upRankMemo = hitMemo.get(key);
+        if (upRankMemo == null) {
+            upRankMemo = new double[RANKS][];
+            hitMemo.put(key, upRankMemo);
+        }
+        double[] memo = upRankMemo[upRank];
+        int memoIndex = hardTotal * 2 + (hasAce ? 1 : 0);
+        if (memo == null) {
+            memo = new double[HIT_STATES];
+            Arrays.fill(memo, Double.NaN);
+            upRankMemo[upRank] = memo;
+        } else if (!Double.isNaN(memo[memoIndex])) {
+            return memo[memoIndex];
+        }
+        int remaining = getRemaining(counts);
+        double toReturn = 0;
+        if (remaining == 0) {
+            toReturn = getStandValue(getValue(hardTotal, hasAce), false, getDealerOutcomes(upRank));
+        }
+        for (int rank = 0; rank < RANKS; rank++) {
+            if (counts[rank] == 0) {
+                continue;
+            }
+            double probability = (double) counts[rank] / remaining;
+            int nextHardTotal = hardTotal + rank + 1;
+            boolean nextHasAce = hasAce || rank == 0;
+            int value = getValue(nextHardTotal, nextHasAce);
+            counts[rank]--;
+            if (value > 21) {
+                toReturn -= probability;
+            } else if (value == 21) {
+                // a hand of 21 can't take any more cards
+                toReturn += probability * getStandValue(21, false, getDealerOutcomes(upRank));
+            } else {
+                double standValue = getStandValue(value, false, getDealerOutcomes(upRank));
+                double hitValue = getHitValue(nextHardTotal, nextHasAce, upRank);
+                toReturn += probability * Math.max(standValue, hitValue);
+            }
+            counts[rank]++;
+        }
+        memo[memoIndex] = toReturn;
+        return toReturn;
+    }
+}
@@ -0,0 +1,63 @@
+package commands.games;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.LongAdder;
+
+import logging.Log;
+
+// where idle blackjack games sleep, one file per game in DIRECTORY/[game id].game, see Blackjack.startHibernation.
+// the files are only any use to the process that wrote them, since the custom id handlers that wake the games up are gone with it.
+// so the leftovers of an earlier run are deleted when the store is opened.
+public class HibernationStore {
+    public final String DIRECTORY;
+    public final LongAdder HIBERNATIONS = new LongAdder();
+    public final LongAdder AWAKENINGS = new LongAdder();
+    public final LongAdder BYTES_WRITTEN = new LongAdder();
+
+    public HibernationStore(String directory) throws IOException {
+        this.DIRECTORY = directory;
+        Files.createDirectories(Paths.get(directory));
+        File[] leftovers = new File(directory).listFiles((dir, name) -> name.endsWith(".game") || name.endsWith(".game.tmp"));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                Files.deleteIfExists(leftover.toPath());
+            }
+        }
+    }
+
+    private Path getPath(long gameID) {
+        return Paths.get(DIRECTORY, gameID + ".game");
+    }
+
+    // the file is written next to its place and moved there, so a game that's woken up never finds half a file
+    public void write(long gameID, byte[] bytes) throws IOException {
+        Path path = getPath(gameID);
+        Path temporaryPath = Paths.get(DIRECTORY, gameID + ".game.tmp");
+        Files.write(temporaryPath, bytes);
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        HIBERNATIONS.increment();
+        BYTES_WRITTEN.add(bytes.length);
+        return;
+    }
+
+    public byte[] read(long gameID) throws IOException {
+        byte[] toReturn = Files.readAllBytes(getPath(gameID));
+        AWAKENINGS.increment();
+        return toReturn;
+    }
+
+    public void delete(long gameID) {
+        try {
+            Files.deleteIfExists(getPath(gameID));
+        } catch (IOException ioException) {
+            // it's deleted with the other leftovers on the next start
+            Log.swallowed("hibernation file deletion");
+        }
+        return;
+    }
+}
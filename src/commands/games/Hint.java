@@ -0,0 +1,79 @@
+package commands.games;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// the odds that the hint button shows a participant, for one hand against one composition of unseen cards, see Blackjack.Game.inGameHint.
+// working them out takes up to a few hundred milliseconds for small hands, so it never happens on a game's mailbox. once a round is dealt,
+// the hints of its players are queued on a background thread, and the hint button only reads them. if the worker hasn't gotten to a hint yet
+// when it's asked for, whoever asks works it out itself. if the worker is far behind, new hints aren't queued at all, so the queue never piles up.
+// all hints of a game share its BlackjackOdds, which isn't thread safe, so it's only used while holding its lock.
+public class Hint {
+    private static final int MAX_QUEUED = 256;
+    private static final ExecutorService WORKER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_QUEUED), runnable -> {
+        Thread thread = new Thread(runnable, "Hint calculator");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private final BlackjackOdds ODDS;
+    private final int[] UNSEEN;
+    private final int UP_RANK;
+    private final BlackjackOdds.HandValue HAND_VALUE;
+    private final boolean DOUBLE_DOWN; // whether the participant can afford to double down
+    private volatile String text = null;
+
+    public Hint(BlackjackOdds odds, int[] unseen, int upRank, BlackjackOdds.HandValue handValue, boolean doubleDown) {
+        this.ODDS = odds;
+        this.UNSEEN = Arrays.copyOf(unseen, unseen.length);
+        this.UP_RANK = upRank;
+        this.HAND_VALUE = handValue;
+        this.DOUBLE_DOWN = doubleDown;
+    }
+
+    // whether this is the hint for the same situation, so it can be shown again
+    public boolean isFor(int[] unseen, int upRank, BlackjackOdds.HandValue handValue, boolean doubleDown) {
+        return Arrays.equals(UNSEEN, unseen) && UP_RANK == upRank && DOUBLE_DOWN == doubleDown
+            && HAND_VALUE.HARD_TOTAL == handValue.HARD_TOTAL && HAND_VALUE.HAS_ACE == handValue.HAS_ACE && HAND_VALUE.TWO_CARDS == handValue.TWO_CARDS;
+    }
+
+    public void prepareLater() {
+        if (text == null) {
+            WORKER.execute(this::getText);
+        }
+        return;
+    }
+
+    // waits for the worker if it's working on this game's odds right now
+    public String getText() {
+        String toReturn = text;
+        if (toReturn != null) {
+            return toReturn;
+        }
+        synchronized (ODDS) {
+            if (text == null) {
+                text = computeText();
+            }
+            return text;
+        }
+    }
+
+    private String computeText() {
+        double standValue = ODDS.getStandExpectedValue(UNSEEN, UP_RANK, HAND_VALUE);
+        double hitValue = ODDS.getHitExpectedValue(UNSEEN, UP_RANK, HAND_VALUE);
+        double[] dealerOutcomes = ODDS.getDealerOutcomeProbabilities(UNSEEN, UP_RANK);
+        StringBuilder toReturnBuilder = new StringBuilder();
+        toReturnBuilder.append("Expected return per coin bet:\\n");
+        toReturnBuilder.append("**Stand:** ").append(String.format("%+.3f", standValue)).append("\\n");
+        toReturnBuilder.append("**Hit:** ").append(String.format("%+.3f", hitValue)).append("\\n");
+        if (DOUBLE_DOWN) {
+            double doubleDownValue = ODDS.getDoubleDownExpectedValue(UNSEEN, UP_RANK, HAND_VALUE);
+            toReturnBuilder.append("**Double Down:** ").append(String.format("%+.3f", doubleDownValue)).append("\\n");
+        }
+        toReturnBuilder.append("The dealer busts ").append(String.format("%.1f", 100 * dealerOutcomes[BlackjackOdds.OUTCOME_BUST])).append("% of the time.");
+        return toReturnBuilder.toString();
+    }
+}
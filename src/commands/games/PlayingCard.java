@@ -5,8 +5,32 @@ import java.util.List;
 public class PlayingCard {
     public static final String back = "🂠";
     private static final String allCardCharacters = "🂡🂢🂣🂤🂥🂦🂧🂨🂩🂪🂫🂭🂮🂱🂲🂳🂴🂵🂶🂷🂸🂹🂺🂻🂽🂾🃁🃂🃃🃄🃅🃆🃇🃈🃉🃊🃋🃍🃎🃑🃒🃓🃔🃕🃖🃗🃘🃙🃚🃛🃝🃞";
+    public static final int CODES = 52; // every card has a code from 0 to 51, see CODE
+    // these are precomputed so that rendering a hand doesn't have to create any new strings
+    private static final String[] CHARACTERS = new String[CODES];
+    // every card is immutable, so shoes are filled with these instead of new cards, see get
+    private static final PlayingCard[] CARDS = new PlayingCard[CODES];
+    private static final String[] FACE_VALUE_NAMES = new String[] {"Ace", "2", "3", "4", "5", "6", "7", "8", "9", "10", "Jack", "Queen", "King"};
     public final Suit SUIT;
     public final int FACE_VALUE;
+    public final int CODE; // suit number * 13 + face value. this can be used to index tables
+
+    static {
+        for (int code = 0; code < CODES; code++) {
+            // card symbols like 🂧 are represented with two character values because of how unicode representation works
+            CHARACTERS[code] = allCardCharacters.substring(2 * code, 2 * code + 2);
+        }
+        for (Suit suit : Suit.ALL_SUITS) {
+            for (int faceValue = 1; faceValue <= 13; faceValue++) {
+                PlayingCard playingCard = new PlayingCard(suit, faceValue);
+                CARDS[playingCard.CODE] = playingCard;
+            }
+        }
+    }
+
+    public static PlayingCard get(int code) {
+        return CARDS[code];
+    }
 
     public static enum Suit {
         HEART(0),
@@ -26,47 +50,53 @@ public class PlayingCard {
         if (faceValue >= 1 && faceValue <= 13) {
             this.SUIT = suit;
             this.FACE_VALUE = faceValue - 1;
+            this.CODE = suit.SUIT_NUMBER * 13 + this.FACE_VALUE;
         } else {
             throw new IllegalArgumentException("Card values must be from 1 to 12");
         }
     }
 
-    // card symbols like 🂧 are represented with two character values because of how unicode representation works
     public String getCharacter() {
-        int startingIndex = 2 * (SUIT.SUIT_NUMBER * 13 + FACE_VALUE);
-        return allCardCharacters.substring(startingIndex, startingIndex + 2); // because the ranks start with 1, we need to look one further to the left
+        return CHARACTERS[CODE];
     }
 
     public String getFaceValueName() {
-        if (FACE_VALUE == 0) {
-            return "Ace";
-        } else if (FACE_VALUE == 10) {
-            return "Jack";
-        } else if (FACE_VALUE == 11) {
-            return "Queen";
-        } else if (FACE_VALUE == 12) {
-            return "King";
-        } else {
-            return String.valueOf(FACE_VALUE + 1);
+        return FACE_VALUE_NAMES[FACE_VALUE];
+    }
+
+    // the rank as far as blackjack is concerned: 0 is an ace, 1 to 8 are the cards from 2 to 9 and 9 is every card worth 10
+    public int getBlackjackRank() {
+        return Math.min(FACE_VALUE, 9);
+    }
+
+    public static void appendCharactersFromList(StringBuilder builder, List<PlayingCard> list) {
+        for (PlayingCard playingCard : list) {
+            builder.append(CHARACTERS[playingCard.CODE]);
         }
+        return;
     }
 
-    public static String getCharactersFromList(List<PlayingCard> list) {
-        StringBuilder toReturnBuilder = new StringBuilder();
+    public static void appendFaceValueNamesFromList(StringBuilder builder, List<PlayingCard> list) {
+        boolean first = true;
         for (PlayingCard playingCard : list) {
-            toReturnBuilder.append(playingCard.getCharacter());
+            if (!first) {
+                builder.append(", ");
+            }
+            builder.append(FACE_VALUE_NAMES[playingCard.FACE_VALUE]);
+            first = false;
         }
+        return;
+    }
+
+    public static String getCharactersFromList(List<PlayingCard> list) {
+        StringBuilder toReturnBuilder = new StringBuilder();
+        appendCharactersFromList(toReturnBuilder, list);
         return toReturnBuilder.toString();
     }
 
     public static String getFaceValueNamesFromList(List<PlayingCard> list) {
         StringBuilder toReturnBuilder = new StringBuilder();
-        for (PlayingCard playingCard : list) {
-            if (toReturnBuilder.length() > 0) {
-                toReturnBuilder.append(", ");
-            }
-            toReturnBuilder.append(playingCard.getFaceValueName());
-        }
+        appendFaceValueNamesFromList(toReturnBuilder, list);
         return toReturnBuilder.toString();
     }
 
@@ -91,7 +121,7 @@ public class PlayingCard {
             return value;
         } else {
             int highestPossibleValue = value; // we will try to get the highest value possible without exceeding 21
-            for (int acesCountedAsElevens = 0; acesCountedAsElevens < aces; acesCountedAsElevens++) {
+            for (int acesCountedAsElevens = 0; acesCountedAsElevens <= aces; acesCountedAsElevens++) {
                 value = 11 * acesCountedAsElevens + directValue + (aces - acesCountedAsElevens);
                 if (value > 21) {
                     // this means the last value is actually the highest possible one
@@ -100,7 +130,7 @@ public class PlayingCard {
                     highestPossibleValue = value;
                 }
             }
-            // this never executes, but with this, the debugger knows the function will return.
+            // every ace fits as an 11, which only happens with a single ace
             return highestPossibleValue;
         }
     }
@@ -1,46 +1,199 @@
 package commands.games;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
+// the shoe is an array. the undealt cards are at the front in random order, and cards are dealt from the end of that part.
+// normally the shoe is replaced as a whole once it runs low. the next shoe is shuffled ahead of time by ShoeShuffler, so that only takes a swap.
+// with continuous shuffling, the cards of every finished round go straight back into the undealt part at random positions instead,
+// like a continuous shuffling machine. that costs O(1) per card, so there are no reshuffles at all, and no next shoe is shuffled either.
 public class PlayingCardDealer {
+    public static final int BLACKJACK_RANKS = 10; // see PlayingCard.getBlackjackRank
     public final int DECKS;
     public final int CARDS;
-    private List<PlayingCard> order = new LinkedList<PlayingCard>();
+    private PlayingCard[] shoe;
+    private int undealt = 0; // shoe[0] to shoe[undealt - 1] are still in the shoe
+    private final int[] rankCounts = new int[BLACKJACK_RANKS]; // how many cards of every blackjack rank are still in the shoe
+    private final Random random;
+    private boolean continuousShuffle = false;
+    private long nextShoeSeed; // drawn from random, so that the next shoe doesn't depend on when it is shuffled
+    private CompletableFuture<PlayingCard[]> nextShoe = null; // null with continuous shuffling
 
     public PlayingCardDealer(int decks) {
+        this(decks, new Random());
+    }
+
+    // with a seeded random, the shoe always comes out in the same order
+    public PlayingCardDealer(int decks, Random random) {
+        this.DECKS = decks;
+        this.CARDS = decks * 13 * 4;
+        this.random = random;
+        this.shoe = ShoeShuffler.shuffle(new PlayingCard[CARDS], DECKS, random.nextLong());
+        resetCounts();
+        prepareNextShoe(null);
+    }
+
+    // continues a dealer that was written with write
+    private PlayingCardDealer(int decks, Random random, PlayingCard[] shoe, int undealt, boolean continuousShuffle, long nextShoeSeed) {
         this.DECKS = decks;
         this.CARDS = decks * 13 * 4;
-        refillAndShuffle();
+        this.random = random;
+        this.shoe = shoe;
+        this.undealt = undealt;
+        for (int i = 0; i < undealt; i++) {
+            rankCounts[shoe[i].getBlackjackRank()]++;
+        }
+        this.continuousShuffle = continuousShuffle;
+        this.nextShoeSeed = nextShoeSeed;
+        if (!continuousShuffle) {
+            this.nextShoe = ShoeShuffler.shuffleLater(new PlayingCard[CARDS], DECKS, nextShoeSeed);
+        }
+    }
+
+    // writes the undealt cards as their codes, and the random with its exact state, so that the dealer that is read back deals the same cards.
+    // the next shoe isn't written, it's shuffled again from its seed if it's needed.
+    public void write(DataOutputStream output) throws IOException {
+        output.writeByte(DECKS);
+        output.writeBoolean(continuousShuffle);
+        output.writeLong(nextShoeSeed);
+        output.writeShort(undealt);
+        for (int i = 0; i < undealt; i++) {
+            output.writeByte(shoe[i].CODE);
+        }
+        // random doesn't give out its state, but it's serializable
+        ByteArrayOutputStream randomBytes = new ByteArrayOutputStream(128);
+        try (ObjectOutputStream objectOutput = new ObjectOutputStream(randomBytes)) {
+            objectOutput.writeObject(random);
+        }
+        output.writeShort(randomBytes.size());
+        randomBytes.writeTo(output);
+        return;
+    }
+
+    public static PlayingCardDealer read(DataInputStream input) throws IOException {
+        int decks = input.readUnsignedByte();
+        boolean continuousShuffle = input.readBoolean();
+        long nextShoeSeed = input.readLong();
+        int undealt = input.readUnsignedShort();
+        PlayingCard[] shoe = new PlayingCard[decks * 13 * 4];
+        for (int i = 0; i < undealt; i++) {
+            shoe[i] = PlayingCard.get(input.readUnsignedByte());
+        }
+        byte[] randomBytes = new byte[input.readUnsignedShort()];
+        input.readFully(randomBytes);
+        Random random;
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(randomBytes))) {
+            random = (Random) objectInput.readObject();
+        } catch (ClassNotFoundException | ClassCastException exception) {
+            throw new IOException("the dealer's random is broken", exception);
+        }
+        return new PlayingCardDealer(decks, random, shoe, undealt, continuousShuffle, nextShoeSeed);
+    }
+
+    // the seed is drawn even with continuous shuffling, so the cards don't depend on when it's switched on or off.
+    // without a buffer to reuse, a new one is only allocated if the shoe is actually shuffled.
+    private void prepareNextShoe(PlayingCard[] buffer) {
+        nextShoeSeed = random.nextLong();
+        if (!continuousShuffle) {
+            nextShoe = ShoeShuffler.shuffleLater(buffer == null ? new PlayingCard[CARDS] : buffer, DECKS, nextShoeSeed);
+        }
+        return;
     }
 
+    // swaps in the shoe that was shuffled in the background. the old one is given to the background thread for the shoe after.
     public void refillAndShuffle() {
-        order = new LinkedList<PlayingCard>();
-        for (int currentDeck = 0; currentDeck < DECKS; currentDeck++) {
-            for (PlayingCard.Suit suit : PlayingCard.Suit.ALL_SUITS) {
-                for (int rank = 1; rank <= 13; rank++) {
-                    order.add(new PlayingCard(suit, rank));
-                }
+        PlayingCard[] next = nextShoe == null ? null : nextShoe.getNow(null);
+        if (next == null) {
+            // the buffer may still belong to the background thread, so this shuffles into a new one
+            if (nextShoe != null) {
+                nextShoe.cancel(false);
             }
+            next = ShoeShuffler.shuffle(new PlayingCard[CARDS], DECKS, nextShoeSeed);
+        }
+        PlayingCard[] old = shoe;
+        shoe = next;
+        resetCounts();
+        prepareNextShoe(old);
+        return;
+    }
+
+    private void resetCounts() {
+        undealt = CARDS;
+        for (int rank = 0; rank < BLACKJACK_RANKS - 1; rank++) {
+            rankCounts[rank] = DECKS * 4;
+        }
+        rankCounts[BLACKJACK_RANKS - 1] = DECKS * 4 * 4; // tens, jacks, queens and kings
+        return;
+    }
+
+    public boolean isContinuousShuffle() {
+        return continuousShuffle;
+    }
+
+    // switching this on doesn't change the cards that are in the shoe right now, only what happens to the dealt ones.
+    // it does drop the next shoe, which the background thread skips if it hasn't started on it yet. switching it off shuffles the next shoe again.
+    public void setContinuousShuffle(boolean continuousShuffle) {
+        this.continuousShuffle = continuousShuffle;
+        if (continuousShuffle && nextShoe != null) {
+            nextShoe.cancel(false);
+            nextShoe = null;
+        } else if (!continuousShuffle && nextShoe == null) {
+            nextShoe = ShoeShuffler.shuffleLater(new PlayingCard[CARDS], DECKS, nextShoeSeed);
+        }
+        return;
+    }
+
+    // gives dealt cards back. without continuous shuffling, they are only collected again by the next refillAndShuffle.
+    public void returnCards(List<PlayingCard> cards) {
+        if (!continuousShuffle) {
+            return;
+        }
+        for (PlayingCard card : cards) {
+            // this is one step of an inside-out fisher-yates shuffle, so the undealt part stays uniformly shuffled
+            int j = random.nextInt(undealt + 1);
+            shoe[undealt] = shoe[j];
+            shoe[j] = card;
+            undealt++;
+            rankCounts[card.getBlackjackRank()]++;
         }
-        Collections.shuffle(order);
         return;
     }
 
     public boolean hasNext() {
-        return !order.isEmpty();
+        return undealt > 0;
     }
 
     public PlayingCard dealCard() {
-        if (order.isEmpty()) {
+        if (undealt == 0) {
             return null;
         } else {
-            return order.removeFirst();
+            undealt--;
+            PlayingCard toReturn = shoe[undealt];
+            shoe[undealt] = null;
+            rankCounts[toReturn.getBlackjackRank()]--;
+            return toReturn;
         }
     }
 
     public int cardsLeft() {
-        return order.size();
+        return undealt;
+    }
+
+    public int getRankCount(int blackjackRank) {
+        return rankCounts[blackjackRank];
+    }
+
+    // copies the counts of the cards left in the shoe into the given array, which needs space for BLACKJACK_RANKS values
+    public void copyRankCounts(int[] destination) {
+        System.arraycopy(rankCounts, 0, destination, 0, BLACKJACK_RANKS);
+        return;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package commands.games;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// shuffles the next shoe of every dealer on a background thread, so that refilling a shoe during a click is only a swap of two arrays.
+// every shoe is shuffled from a seed that the dealer drew from its own random, so it comes out the same no matter which thread shuffles it.
+// if the worker hasn't gotten to a shoe yet when it's needed, the dealer shuffles it itself with the same seed.
+public class ShoeShuffler {
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Shoe shuffler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // fills the array with decks full decks and shuffles it. the array is reused, so the shoe of the last refill can be given back here.
+    public static PlayingCard[] shuffle(PlayingCard[] shoe, int decks, long seed) {
+        int index = 0;
+        for (int currentDeck = 0; currentDeck < decks; currentDeck++) {
+            for (int code = 0; code < PlayingCard.CODES; code++) {
+                shoe[index] = PlayingCard.get(code);
+                index++;
+            }
+        }
+        // fisher-yates
+        Random random = new Random(seed);
+        for (int i = shoe.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            PlayingCard swapped = shoe[i];
+            shoe[i] = shoe[j];
+            shoe[j] = swapped;
+        }
+        return shoe;
+    }
+
+    public static CompletableFuture<PlayingCard[]> shuffleLater(PlayingCard[] shoe, int decks, long seed) {
+        return CompletableFuture.supplyAsync(() -> shuffle(shoe, decks, seed), WORKER);
+    }
+}
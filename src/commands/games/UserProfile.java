@@ -0,0 +1,26 @@
+package commands.games;
+
+import java.util.Objects;
+
+// what a game shows of a user. profiles never change, a user who renamed themselves gets a new one, see UserProfileCache.
+// everything the ready screen needs is resolved once here, so rendering only copies references.
+public class UserProfile {
+    public final long USER_ID;
+    public final String GLOBAL_NAME; // discord allows users without one, then this is null like in the user object
+    public final String AVATAR_URL; // the default avatar if the user doesn't have one
+    public final boolean DEFAULT_AVATAR;
+    public final String PLAYER_LIST_LINE; // the user's line in the list of joined players
+
+    public UserProfile(long userID, String globalName, String avatarURL) {
+        this.USER_ID = userID;
+        this.GLOBAL_NAME = globalName;
+        this.DEFAULT_AVATAR = avatarURL == null;
+        this.AVATAR_URL = avatarURL == null ? Blackjack.Game.Participant.defaultAvatar : avatarURL;
+        this.PLAYER_LIST_LINE = "- " + globalName + "\\n";
+    }
+
+    // whether the user still looks like this
+    public boolean matches(String globalName, String avatarURL) {
+        return Objects.equals(GLOBAL_NAME, globalName) && (DEFAULT_AVATAR ? avatarURL == null : AVATAR_URL.equals(avatarURL));
+    }
+}
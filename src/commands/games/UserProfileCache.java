@@ -0,0 +1,44 @@
+package commands.games;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// the profiles of the users that played recently, by user id, so that a user who sits at several tables or plays round after round
+// is only one profile in memory. bots are in here too, with their negative ids, and are shared by every game.
+// the profiles of the users that played least recently are dropped once there are more than MAX_PROFILES. that doesn't break the participants
+// that still have them, since profiles never change. the next join just makes a new one.
+public class UserProfileCache {
+    public final int MAX_PROFILES;
+    public final LongAdder HITS = new LongAdder();
+    public final LongAdder MISSES = new LongAdder();
+    public final LongAdder EVICTIONS = new LongAdder();
+    private final LinkedHashMap<Long, UserProfile> userIDToProfile = new LinkedHashMap<Long, UserProfile>(16, 0.75f, true);
+
+    public UserProfileCache(int maxProfiles) {
+        this.MAX_PROFILES = maxProfiles;
+    }
+
+    // returns the cached profile if the user still has the same name and avatar, otherwise replaces it
+    public synchronized UserProfile get(long userID, String globalName, String avatarURL) {
+        UserProfile toReturn = userIDToProfile.get(userID);
+        if (toReturn != null && toReturn.matches(globalName, avatarURL)) {
+            HITS.increment();
+            return toReturn;
+        }
+        MISSES.increment();
+        toReturn = new UserProfile(userID, globalName, avatarURL);
+        userIDToProfile.put(userID, toReturn);
+        Iterator<UserProfile> iterator = userIDToProfile.values().iterator();
+        while (userIDToProfile.size() > MAX_PROFILES) {
+            iterator.next();
+            iterator.remove();
+            EVICTIONS.increment();
+        }
+        return toReturn;
+    }
+
+    public synchronized int size() {
+        return userIDToProfile.size();
+    }
+}
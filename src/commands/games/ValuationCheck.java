@@ -0,0 +1,60 @@
+package commands.games;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// checks that BlackjackOdds values hands the way the game does. this is run offline, not by the bot:
+// java commands.games.ValuationCheck [hands] [seed]
+// random hands of one to eight cards go through both BlackjackOdds.HandValue and PlayingCard.getBlackjackValue, which evaluateRound and finalDealing score with.
+// the odds, the hints and the strategy tables are only right if the two agree on every total and on which hands are soft.
+// the exit code is 1 if they disagree on any hand.
+public class ValuationCheck {
+    private static final int MAX_CARDS = 8;
+    private static final int MAX_PRINTED = 20;
+    private static int printed = 0;
+
+    public static void main(String[] args) {
+        int hands = args.length > 0 ? Integer.valueOf(args[0]) : 1000000;
+        long seed = args.length > 1 ? Long.valueOf(args[1]) : System.nanoTime();
+        int disagreements = check(hands, seed);
+        System.out.println("Checked " + hands + " hands with seed " + seed + ", " + disagreements + " disagreements");
+        if (disagreements > 0) {
+            System.exit(1);
+        }
+        return;
+    }
+
+    // returns the number of hands the two disagree on. BasicStrategyGenerator runs this before it writes any tables.
+    public static int check(int hands, long seed) {
+        Random random = new Random(seed);
+        List<PlayingCard> hand = new ArrayList<PlayingCard>(MAX_CARDS);
+        int disagreements = 0;
+        for (int i = 0; i < hands; i++) {
+            hand.clear();
+            int cards = 1 + random.nextInt(MAX_CARDS);
+            for (int card = 0; card < cards; card++) {
+                hand.add(PlayingCard.get(random.nextInt(PlayingCard.CODES)));
+            }
+            if (!agree(hand)) {
+                disagreements++;
+            }
+        }
+        return disagreements;
+    }
+
+    private static boolean agree(List<PlayingCard> hand) {
+        BlackjackOdds.HandValue handValue = new BlackjackOdds.HandValue(hand);
+        int gameValue = PlayingCard.getBlackjackValue(hand);
+        // the game's hand is soft if one of its aces is counted as 11
+        boolean gameSoft = handValue.HAS_ACE && gameValue == handValue.HARD_TOTAL + 10;
+        if (handValue.getValue() == gameValue && handValue.isSoft() == gameSoft) {
+            return true;
+        }
+        if (printed++ < MAX_PRINTED) {
+            System.out.println(PlayingCard.getFaceValueNamesFromList(hand) + ": the odds count " + handValue.getValue() + (handValue.isSoft() ? " soft" : " hard")
+                + ", the game counts " + gameValue + (gameSoft ? " soft" : " hard"));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package commands.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import unrelibrary.MalformedException;
+
+// compiles a challenge json file into the binary format that CompiledCatalog maps. this is run locally, not by the bot:
+// java commands.utility.CatalogCompiler [json file] [compiled file]
+// the compiled file goes next to the json file by default, which is where ChallengeCatalog.load looks for it.
+// texts that show up several times, like the same challenge for several games, are only stored once.
+public class CatalogCompiler {
+    private final List<byte[]> strings = new ArrayList<byte[]>();
+    private final Map<String, Integer> stringToIndex = new HashMap<String, Integer>();
+    private long poolBytes = 0;
+
+    public static void main(String[] args) throws IOException, MalformedException {
+        String jsonFile = args.length > 0 ? args[0] : "./data/challenges.json";
+        String compiledFile = args.length > 1 ? args[1] : CompiledCatalog.getCompiledPath(jsonFile);
+        RandomChallenge.Entry[] entries = ChallengeCatalog.parse(jsonFile);
+        CatalogCompiler compiler = new CatalogCompiler();
+        long bytes = compiler.compile(entries, compiledFile);
+        System.out.println("Compiled " + entries.length + " games with " + compiler.strings.size() + " distinct texts into " + compiledFile + " (" + bytes + " bytes)");
+        return;
+    }
+
+    private int getStringIndex(String string) {
+        Integer index = stringToIndex.get(string);
+        if (index == null) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            index = strings.size();
+            strings.add(bytes);
+            stringToIndex.put(string, index);
+            poolBytes += bytes.length;
+        }
+        return index;
+    }
+
+    // returns the size of the file
+    public long compile(RandomChallenge.Entry[] entries, String file) throws IOException {
+        ByteArrayOutputStream gameBytes = new ByteArrayOutputStream();
+        DataOutputStream games = new DataOutputStream(gameBytes);
+        ByteArrayOutputStream challengeReferenceBytes = new ByteArrayOutputStream();
+        DataOutputStream challengeReferences = new DataOutputStream(challengeReferenceBytes);
+        int challengeReferenceCount = 0;
+        for (RandomChallenge.Entry entry : entries) {
+            games.writeInt(getStringIndex(entry.GAME));
+            games.writeInt(challengeReferenceCount);
+            games.writeInt(entry.getChallengeCount());
+            for (int challenge = 0; challenge < entry.getChallengeCount(); challenge++) {
+                challengeReferences.writeInt(getStringIndex(entry.getChallenge(challenge)));
+                challengeReferenceCount++;
+            }
+        }
+
+        long toReturn = CompiledCatalog.HEADER_BYTES + gameBytes.size() + challengeReferenceBytes.size() + 4L * (strings.size() + 1) + poolBytes;
+        if (toReturn > Integer.MAX_VALUE) {
+            throw new IOException("The catalog is too big for int offsets");
+        }
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            output.writeInt(CompiledCatalog.MAGIC);
+            output.writeInt(CompiledCatalog.VERSION);
+            output.writeInt(entries.length);
+            output.writeInt(challengeReferenceCount);
+            output.writeInt(strings.size());
+            gameBytes.writeTo(output);
+            challengeReferenceBytes.writeTo(output);
+            int offset = 0; // into the pool
+            for (byte[] string : strings) {
+                output.writeInt(offset);
+                offset += string.length;
+            }
+            output.writeInt(offset);
+            for (byte[] string : strings) {
+                output.write(string);
+            }
+        }
+        return toReturn;
+    }
+}
@@ -0,0 +1,106 @@
+package commands.utility;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Scanner;
+
+import logging.Log;
+import unrelibrary.MalformedException;
+import unrelibrary.discordobjects.components.StringSelect;
+import unrelibrary.formatting.GeneralFormatter;
+import unrelibrary.formatting.JSONFactory;
+
+// one loaded challenge file with everything that is built from it. output messages keep the catalog they were created with,
+// so a catalog must never be changed after it's loaded.
+public class ChallengeCatalog {
+    private static int lastVersion = 0;
+    public final int VERSION; // every loaded catalog has its own
+    public final RandomChallenge.Entry[] ENTRIES;
+    public final GameNameIndex GAME_NAME_INDEX;
+    public final RandomChallenge.Templates TEMPLATES;
+    public final long BYTES; // an estimate of the heap this catalog takes up. the pages of a compiled catalog aren't counted, they belong to the file.
+
+    private ChallengeCatalog(RandomChallenge.Entry[] entries) {
+        this.VERSION = nextVersion();
+        this.ENTRIES = entries;
+        this.GAME_NAME_INDEX = new GameNameIndex(entries);
+        StringSelect.Option[] options = new StringSelect.Option[entries.length];
+        // the arrays of the entries, the options and the index
+        long bytes = 3 * (16 + 4L * entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            options[i] = new StringSelect.Option(
+                entries[i].GAME,
+                entries[i].GAME,
+                "testest"
+            );
+            bytes += 32 + getStringBytes(entries[i].GAME) + 48; // the entry, the name and the option
+            if (entries[i].CHALLENGES != null) {
+                bytes += 16 + 4L * entries[i].CHALLENGES.length;
+                for (String challenge : entries[i].CHALLENGES) {
+                    bytes += getStringBytes(challenge);
+                }
+            }
+        }
+        this.TEMPLATES = new RandomChallenge.Templates(VERSION, options);
+        this.BYTES = bytes;
+    }
+
+    private static synchronized int nextVersion() {
+        lastVersion++;
+        return lastVersion;
+    }
+
+    // a compiled catalog next to the json file is used instead of it, as long as it isn't older, see CatalogCompiler
+    public static ChallengeCatalog load(String file) throws FileNotFoundException, MalformedException {
+        File jsonFile = new File(file);
+        File compiledFile = new File(CompiledCatalog.getCompiledPath(file));
+        if (compiledFile.isFile() && (!jsonFile.isFile() || compiledFile.lastModified() >= jsonFile.lastModified())) {
+            try {
+                return new ChallengeCatalog(CompiledCatalog.map(compiledFile.getPath()));
+            } catch (IOException ioException) {
+                Log.error("Couldn't map " + compiledFile.getPath() + ", loading " + file + " instead. ", ioException);
+            }
+        }
+        return new ChallengeCatalog(parse(file));
+    }
+
+    // whether load would find a catalog for this file
+    public static boolean exists(String file) {
+        return new File(file).isFile() || new File(CompiledCatalog.getCompiledPath(file)).isFile();
+    }
+
+    static RandomChallenge.Entry[] parse(String file) throws FileNotFoundException, MalformedException {
+        File dataFile = new File(file);
+        Scanner scanner = new Scanner(dataFile);
+        StringBuilder fileContents = new StringBuilder();
+        while (scanner.hasNextLine()) {
+            fileContents.append(scanner.nextLine());
+        }
+        scanner.close();
+        Map<String, String> rawSeparatedJSON = GeneralFormatter.separateJSON(fileContents.toString());
+        String[] rawSeparatedEntries = GeneralFormatter.separateArray(rawSeparatedJSON.get("\"entries\""));
+        RandomChallenge.Entry[] entries = new RandomChallenge.Entry[rawSeparatedEntries.length];
+        for (int i = 0; i < rawSeparatedEntries.length; i++) {
+            String rawEntry = rawSeparatedEntries[i];
+            Map<String, String> rawSeparatedEntry = GeneralFormatter.separateJSON(rawEntry);
+            String gameName = JSONFactory.extractString(rawSeparatedEntry.get("\"game\""));
+            String[] rawChallenges = GeneralFormatter.separateArray(rawSeparatedEntry.get("\"challenges\""));
+            String[] challenges = new String[rawChallenges.length];
+            for (int challengeIndex = 0; challengeIndex < challenges.length; challengeIndex++) {
+                challenges[challengeIndex] = JSONFactory.extractString(rawChallenges[challengeIndex]);
+            }
+            entries[i] = new RandomChallenge.Entry(
+                gameName,
+                challenges
+            );
+        }
+        return entries;
+    }
+
+    // the string object and its array, counting two bytes per char since the text may not be latin-1
+    private static long getStringBytes(String string) {
+        return 24 + 16 + 2L * string.length();
+    }
+}
@@ -0,0 +1,119 @@
+package commands.utility;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import logging.Log;
+import unrelibrary.MalformedException;
+
+// the challenge catalogs of guilds that have their own, in DIRECTORY/[guild id].json or compiled in DIRECTORY/[guild id].qcat.
+// a guild's catalog is only loaded on its first /randomchallenge, and the catalogs of the guilds that used the command least recently are dropped once all of them together take up more than MAX_BYTES.
+// a dropped catalog is loaded again the next time. output messages keep their own catalog, so dropping it doesn't break them.
+// guilds without a file are remembered too, so the file isn't looked for on every command. they get the default catalog, and are looked for again after NO_FILE_NANOS.
+// a catalog that was loaded is checked against the modification times of its files whenever it's used, so an edited or compiled catalog is picked up without a restart.
+public class ChallengeCatalogCache {
+    private static final long GUILD_BYTES = 64; // what remembering a guild costs on top of its catalog
+    private static final long NO_FILE_NANOS = 60L * 1000000000L;
+    public final String DIRECTORY;
+    public final long MAX_BYTES;
+    public final LongAdder HITS = new LongAdder();
+    public final LongAdder LOADS = new LongAdder();
+    public final LongAdder EVICTIONS = new LongAdder();
+    private final LinkedHashMap<Long, CachedCatalog> guildIDToCatalog = new LinkedHashMap<Long, CachedCatalog>(16, 0.75f, true);
+    private long bytes = 0;
+
+    private static class CachedCatalog {
+        private final ChallengeCatalog CATALOG; // null for guilds without a file
+        private final long JSON_MODIFIED; // 0 if there was no such file, like File.lastModified
+        private final long COMPILED_MODIFIED;
+        private final long LOADED_NANOS;
+
+        private CachedCatalog(ChallengeCatalog catalog, long jsonModified, long compiledModified, long loadedNanos) {
+            this.CATALOG = catalog;
+            this.JSON_MODIFIED = jsonModified;
+            this.COMPILED_MODIFIED = compiledModified;
+            this.LOADED_NANOS = loadedNanos;
+        }
+
+        private boolean isCurrent(File jsonFile, File compiledFile) {
+            if (CATALOG == null) {
+                return System.nanoTime() - LOADED_NANOS < NO_FILE_NANOS;
+            }
+            return jsonFile.lastModified() == JSON_MODIFIED && compiledFile.lastModified() == COMPILED_MODIFIED;
+        }
+    }
+
+    public ChallengeCatalogCache(String directory, long maxBytes) {
+        this.DIRECTORY = directory;
+        this.MAX_BYTES = maxBytes;
+    }
+
+    // returns the guild's own catalog, or null if it doesn't have one. the files are checked and loaded without holding the cache's lock,
+    // so one guild's big catalog doesn't hold up the others.
+    public ChallengeCatalog get(long guildID) {
+        File file = new File(DIRECTORY, guildID + ".json");
+        File compiledFile = new File(CompiledCatalog.getCompiledPath(file.getPath()));
+        CachedCatalog cached;
+        synchronized (this) {
+            cached = guildIDToCatalog.get(guildID);
+        }
+        if (cached != null && cached.isCurrent(file, compiledFile)) {
+            HITS.increment();
+            return cached.CATALOG;
+        }
+        LOADS.increment();
+        // the times are taken before loading, so a file that changes while it's loaded is loaded again next time
+        long loadedNanos = System.nanoTime();
+        long jsonModified = file.lastModified();
+        long compiledModified = compiledFile.lastModified();
+        ChallengeCatalog catalog = null;
+        if (ChallengeCatalog.exists(file.getPath())) {
+            try {
+                catalog = ChallengeCatalog.load(file.getPath());
+            } catch (FileNotFoundException | MalformedException exception) {
+                Log.error("Couldn't load the challenges of guild " + guildID + ", it gets the default ones. ", exception);
+            }
+        }
+        synchronized (this) {
+            CachedCatalog current = guildIDToCatalog.get(guildID);
+            // another command of the same guild may have loaded it in the meantime
+            if (current != null && current != cached) {
+                return current.CATALOG;
+            }
+            if (current != null) {
+                bytes -= getBytes(current.CATALOG);
+            }
+            guildIDToCatalog.put(guildID, new CachedCatalog(catalog, jsonModified, compiledModified, loadedNanos));
+            bytes += getBytes(catalog);
+            evict();
+        }
+        return catalog;
+    }
+
+    // drops the least recently used guilds until everything fits, except for the one that was just added
+    private void evict() {
+        Iterator<Map.Entry<Long, CachedCatalog>> iterator = guildIDToCatalog.entrySet().iterator();
+        while (bytes > MAX_BYTES && guildIDToCatalog.size() > 1) {
+            bytes -= getBytes(iterator.next().getValue().CATALOG);
+            iterator.remove();
+            EVICTIONS.increment();
+        }
+        return;
+    }
+
+    private static long getBytes(ChallengeCatalog catalog) {
+        return GUILD_BYTES + (catalog == null ? 0 : catalog.BYTES);
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return guildIDToCatalog.size();
+    }
+}
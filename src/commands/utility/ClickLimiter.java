@@ -0,0 +1,138 @@
+package commands.utility;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import unrelibrary.discordobjects.interactions.ComponentInteraction;
+import unrelibrary.discordobjects.interactions.Interaction;
+import unrelibrary.restapi.CustomIDListeningUpdate;
+
+// turns away button mashing before it gets to a game or output message, see wrap. a click is only let through if
+// - the same user didn't click the same custom id within DUPLICATE_WINDOW_MILLIS
+// - the user has clicks left: USER_BURST at once, and one more every USER_INTERVAL_MILLIS
+// - the message has clicks left: TARGET_BURST at once, and one more every TARGET_INTERVAL_MILLIS, so one table can't take all the threads
+// a click that isn't let through is only acknowledged. it doesn't wait for a lock, a mailbox or a render, so mashing costs a map lookup and a compare and set.
+// the buckets are a generic cell rate algorithm: a bucket is only the time at which it would be completely full again, so taking a click is a single compare and set.
+public class ClickLimiter {
+    private static final long DUPLICATE_WINDOW_MILLIS = 200;
+    private static final int USER_BURST = 8;
+    private static final long USER_INTERVAL_MILLIS = 250;
+    private static final int TARGET_BURST = 20;
+    private static final long TARGET_INTERVAL_MILLIS = 100;
+    private static final long IDLE_NANOS = 60 * 1000000000L; // buckets that were full again for this long are dropped
+    private static final int PRUNE_EVERY = 4096; // new buckets
+
+    public static final ClickLimiter CLICKS = new ClickLimiter(); // shared by every command, since a user can mash several messages at once
+    public final LongAdder ALLOWED = new LongAdder();
+    public final LongAdder DUPLICATES = new LongAdder();
+    public final LongAdder USER_LIMITED = new LongAdder();
+    public final LongAdder TARGET_LIMITED = new LongAdder();
+
+    private final Map<Long, Bucket> userIDToBucket = new ConcurrentHashMap<Long, Bucket>();
+    private final Map<Long, Bucket> targetIDToBucket = new ConcurrentHashMap<Long, Bucket>();
+    private final AtomicInteger createdBuckets = new AtomicInteger(0);
+
+    private static class Bucket {
+        private final AtomicLong fullNanos; // when the bucket has its whole burst again. before that, it has (burst - (fullNanos - now) / interval) clicks left.
+        private final AtomicLong lastClick = new AtomicLong(0); // the hash of the last custom id in the upper half, the millis of the click in the lower half
+
+        private Bucket(long nowNanos) {
+            this.fullNanos = new AtomicLong(nowNanos);
+        }
+
+        private boolean tryTake(long nowNanos, int burst, long intervalNanos) {
+            while (true) {
+                long full = fullNanos.get();
+                long next = Math.max(full, nowNanos) + intervalNanos;
+                if (next - nowNanos > burst * intervalNanos) {
+                    return false;
+                }
+                if (fullNanos.compareAndSet(full, next)) {
+                    return true;
+                }
+            }
+        }
+
+        // remembers the click, and returns whether it's the same as the one before within the window
+        private boolean isDuplicate(String customID, long nowMillis) {
+            long click = ((long) customID.hashCode() << 32) | (nowMillis & 0xFFFFFFFFL);
+            long last = lastClick.getAndSet(click);
+            return (last >>> 32) == (click >>> 32) && ((int) nowMillis - (int) last) < DUPLICATE_WINDOW_MILLIS;
+        }
+    }
+
+    // returns whether the click should be handled. a user id of 0 is only limited by the message.
+    public boolean allow(long userID, long targetID, String customID) {
+        long nowNanos = System.nanoTime();
+        if (userID != 0) {
+            Bucket userBucket = getBucket(userIDToBucket, userID, nowNanos);
+            if (userBucket.isDuplicate(customID, nowNanos / 1000000L)) {
+                DUPLICATES.increment();
+                return false;
+            }
+            if (!userBucket.tryTake(nowNanos, USER_BURST, USER_INTERVAL_MILLIS * 1000000L)) {
+                USER_LIMITED.increment();
+                return false;
+            }
+        }
+        if (!getBucket(targetIDToBucket, targetID, nowNanos).tryTake(nowNanos, TARGET_BURST, TARGET_INTERVAL_MILLIS * 1000000L)) {
+            TARGET_LIMITED.increment();
+            return false;
+        }
+        ALLOWED.increment();
+        return true;
+    }
+
+    private Bucket getBucket(Map<Long, Bucket> buckets, long id, long nowNanos) {
+        Bucket toReturn = buckets.get(id);
+        if (toReturn == null) {
+            toReturn = buckets.computeIfAbsent(id, key -> new Bucket(nowNanos));
+            if (createdBuckets.incrementAndGet() % PRUNE_EVERY == 0) {
+                prune(nowNanos);
+            }
+        }
+        return toReturn;
+    }
+
+    // a bucket that has been full for a while is the same as a new one
+    private void prune(long nowNanos) {
+        userIDToBucket.values().removeIf(bucket -> nowNanos - bucket.fullNanos.get() > IDLE_NANOS);
+        targetIDToBucket.values().removeIf(bucket -> nowNanos - bucket.fullNanos.get() > IDLE_NANOS);
+        return;
+    }
+
+    // puts the limiter in front of every handler of a message. the custom ids are keys of the map.
+    public Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> wrap(Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> handlers, long targetID) {
+        for (Map.Entry<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> entry : handlers.entrySet()) {
+            String customID = entry.getKey();
+            Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse> handler = entry.getValue();
+            entry.setValue(interaction -> {
+                // in direct messages there's no member, only the user
+                long userID;
+                if (interaction.MEMBER != null) {
+                    userID = interaction.MEMBER.USER.ID;
+                } else if (interaction.USER != null) {
+                    userID = interaction.USER.ID;
+                } else {
+                    userID = 0;
+                }
+                if (allow(userID, targetID, customID)) {
+                    return handler.apply(interaction);
+                }
+                return new Interaction.CustomIDUpdatingResponse(
+                    new Interaction.MessageResponse(6), // acknowledge but don't do anything
+                    new CustomIDListeningUpdate(null, null, null, null)
+                );
+            });
+        }
+        return handlers;
+    }
+
+    public int size() {
+        return userIDToBucket.size() + targetIDToBucket.size();
+    }
+}
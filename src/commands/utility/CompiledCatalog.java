@@ -0,0 +1,112 @@
+package commands.utility;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// reads a catalog written by CatalogCompiler. the file is memory mapped, and only the game names are read when it's opened,
+// since the select menu and the name index need all of them. a challenge is only decoded from the file when it's rolled,
+// so the heap doesn't grow with the number of challenges, and only the pages of challenges that were rolled are ever read.
+// the layout, with every number a big endian int:
+// header: magic, version, games, challenge references, strings
+// games: name string, first challenge reference, challenge count
+// challenge references: string
+// string offsets: strings + 1 offsets into the pool, the last one is the end of the pool
+// pool: the utf-8 bytes of every distinct string
+public class CompiledCatalog {
+    public static final int MAGIC = 0x51434154; // "QCAT"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 5 * 4;
+    public static final int GAME_BYTES = 3 * 4;
+
+    // an entry whose challenges stay in the file
+    private static class MappedEntry extends RandomChallenge.Entry {
+        private final Strings STRINGS;
+        private final int FIRST_CHALLENGE;
+        private final int CHALLENGE_COUNT;
+
+        private MappedEntry(String game, Strings strings, int firstChallenge, int challengeCount) {
+            super(game, null);
+            this.STRINGS = strings;
+            this.FIRST_CHALLENGE = firstChallenge;
+            this.CHALLENGE_COUNT = challengeCount;
+        }
+
+        @Override
+        public int getChallengeCount() {
+            return CHALLENGE_COUNT;
+        }
+
+        @Override
+        public String getChallenge(int index) {
+            return STRINGS.getChallenge(FIRST_CHALLENGE + index);
+        }
+    }
+
+    // the mapped file. only absolute reads are used, so it can be read from several threads at once.
+    private static class Strings {
+        private final MappedByteBuffer BUFFER;
+        private final int CHALLENGE_REFERENCES_START;
+        private final int OFFSETS_START;
+        private final int POOL_START;
+
+        private Strings(MappedByteBuffer buffer, int games, int challengeReferences, int strings) {
+            this.BUFFER = buffer;
+            this.CHALLENGE_REFERENCES_START = HEADER_BYTES + games * GAME_BYTES;
+            this.OFFSETS_START = CHALLENGE_REFERENCES_START + challengeReferences * 4;
+            this.POOL_START = OFFSETS_START + (strings + 1) * 4;
+        }
+
+        private String getChallenge(int challengeReference) {
+            return getString(BUFFER.getInt(CHALLENGE_REFERENCES_START + challengeReference * 4));
+        }
+
+        private String getString(int string) {
+            int start = BUFFER.getInt(OFFSETS_START + string * 4);
+            int end = BUFFER.getInt(OFFSETS_START + string * 4 + 4);
+            byte[] bytes = new byte[end - start];
+            BUFFER.get(POOL_START + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // challenges.json -> challenges.qcat
+    public static String getCompiledPath(String jsonFile) {
+        if (jsonFile.endsWith(".json")) {
+            return jsonFile.substring(0, jsonFile.length() - ".json".length()) + ".qcat";
+        }
+        return jsonFile + ".qcat";
+    }
+
+    public static RandomChallenge.Entry[] map(String file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " isn't a compiled catalog of this version");
+        }
+        int games = buffer.getInt(8);
+        int challengeReferences = buffer.getInt(12);
+        int strings = buffer.getInt(16);
+        Strings catalogStrings = new Strings(buffer, games, challengeReferences, strings);
+        if (catalogStrings.POOL_START > buffer.capacity() || catalogStrings.POOL_START + buffer.getInt(catalogStrings.POOL_START - 4) != buffer.capacity()) {
+            throw new IOException(file + " is cut off");
+        }
+        RandomChallenge.Entry[] entries = new RandomChallenge.Entry[games];
+        for (int game = 0; game < games; game++) {
+            int position = HEADER_BYTES + game * GAME_BYTES;
+            entries[game] = new MappedEntry(
+                catalogStrings.getString(buffer.getInt(position)),
+                catalogStrings,
+                buffer.getInt(position + 4),
+                buffer.getInt(position + 8)
+            );
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,66 @@
+package commands.utility;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// finds catalog entries by the start of their game name, ignoring case. the entries are sorted by name once when the catalog is loaded,
+// so all names with a prefix are next to each other. a lookup is a binary search for the first of them, and then they are read off in order.
+// lookups don't allocate anything, the matches are written into an array that the caller passes in.
+public class GameNameIndex {
+    private final RandomChallenge.Entry[] SORTED_ENTRIES;
+
+    private static final Comparator<RandomChallenge.Entry> BY_NAME = (entry, otherEntry) -> {
+        int comparison = String.CASE_INSENSITIVE_ORDER.compare(entry.GAME, otherEntry.GAME);
+        if (comparison == 0) {
+            comparison = entry.GAME.compareTo(otherEntry.GAME);
+        }
+        return comparison;
+    };
+
+    public GameNameIndex(RandomChallenge.Entry[] entries) {
+        this.SORTED_ENTRIES = Arrays.copyOf(entries, entries.length);
+        Arrays.sort(SORTED_ENTRIES, BY_NAME);
+    }
+
+    public int size() {
+        return SORTED_ENTRIES.length;
+    }
+
+    // writes the first matches for the prefix in alphabetical order into matches, and returns how many there are
+    public int complete(String prefix, RandomChallenge.Entry[] matches) {
+        int count = 0;
+        for (int i = lowerBound(prefix); i < SORTED_ENTRIES.length && count < matches.length; i++) {
+            if (!SORTED_ENTRIES[i].GAME.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            matches[count] = SORTED_ENTRIES[i];
+            count++;
+        }
+        return count;
+    }
+
+    // the entry whose name is exactly this one, or null
+    public RandomChallenge.Entry find(String name) {
+        for (int i = lowerBound(name); i < SORTED_ENTRIES.length && SORTED_ENTRIES[i].GAME.equalsIgnoreCase(name); i++) {
+            if (SORTED_ENTRIES[i].GAME.equals(name)) {
+                return SORTED_ENTRIES[i];
+            }
+        }
+        return null;
+    }
+
+    // the index of the first entry whose name isn't before the prefix
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = SORTED_ENTRIES.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(SORTED_ENTRIES[middle].GAME, prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,16 +1,13 @@
 package commands.utility;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Map;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.function.Function;
 
 import unrelibrary.discordobjects.interactions.SlashCommandInteraction;
-import unrelibrary.DiscordBot;
 import unrelibrary.MalformedException;
 import unrelibrary.discordobjects.components.ActionRow;
 import unrelibrary.discordobjects.components.Button;
@@ -23,11 +20,12 @@ import unrelibrary.discordobjects.components.TextDisplay;
 import unrelibrary.discordobjects.components.UnfurledMediaItem;
 import unrelibrary.discordobjects.interactions.ComponentInteraction;
 import unrelibrary.discordobjects.interactions.Interaction;
-import unrelibrary.formatting.GeneralFormatter;
-import unrelibrary.formatting.JSONFactory;
 import unrelibrary.restapi.CustomIDListeningUpdate;
 import unrelibrary.restapi.ServerResponseException;
 import unrelibrary.restapi.SlashCommand;
+import rest.RestEndpoints;
+import recording.InteractionRecorder;
+import logging.Log;
 
 
 // the self destruct button breaks custom id convention because it isn't bound to a specific state
@@ -35,20 +33,71 @@ import unrelibrary.restapi.SlashCommand;
 
 public class RandomChallenge {
     private static Map<Long, OutputMessage> usersToOutputMessages = new TreeMap<Long, OutputMessage>();
-    public static Entry[] entries;
-    public static StringSelect.Option[] entryStringSelectionOptions;
+    public static Entry[] entries; // of the default catalog
+    private static volatile ChallengeCatalog defaultCatalog;
+    public static final ChallengeCatalogCache GUILD_CATALOGS = new ChallengeCatalogCache("./data/challenges", 64L * 1024 * 1024);
     public static Map<Long, OutputMessage> idToOutputMessage = new TreeMap<Long, OutputMessage>();
-    private static final Random RANDOM = new Random(System.currentTimeMillis());
-    private static DiscordBot DISCORD_BOT;
+    private static Random RANDOM = new Random(System.currentTimeMillis()); // every output message draws its own random from this one, see InteractionRecorder
+    private static RestEndpoints restEndpoints;
 
     public static class Entry {
         public final String GAME;
-        public final String[] CHALLENGES;
+        public final String[] CHALLENGES; // null for entries of a compiled catalog, which read their challenges from the file, see CompiledCatalog
 
         public Entry(String game, String[] challenges) {
             this.GAME = game;
             this.CHALLENGES = challenges;
         }
+
+        public int getChallengeCount() {
+            return CHALLENGES.length;
+        }
+
+        public String getChallenge(int index) {
+            return CHALLENGES[index];
+        }
+    }
+
+    // the parts of the output message that are the same for every message. they are built once per loaded catalog and then shared between all messages,
+    // so they must never be changed after construction.
+    public static class Templates {
+        public static final int COLOR = 13369344;
+        public final int CATALOG_VERSION;
+        public final TextDisplay HEADER;
+        public final Separator SEPARATOR;
+        public final MediaGallery READY_GALLERY;
+        public final MediaGallery RESULTS_GALLERY;
+        public final StringSelect.Option[] OPTIONS;
+
+        public Templates(int catalogVersion, StringSelect.Option[] options) {
+            this.CATALOG_VERSION = catalogVersion;
+            this.HEADER = new TextDisplay(
+                "# Get a random Challenge!"
+            );
+            this.SEPARATOR = new Separator(
+                true,
+                1
+            );
+            this.READY_GALLERY = new MediaGallery(
+                new MediaGallery.Item[] {
+                    new MediaGallery.Item(
+                        new UnfurledMediaItem("https://cdn.discordapp.com/attachments/1416447713137918122/1416458293563490376/reddit-gambling-short.gif?ex=68c6eb15&is=68c59995&hm=48de03227dfc031eb67e73fdf99bef1d6596fd784f2b1e74ed7cbd49a7de4d14&"),
+                        null,
+                        false
+                    )
+                }
+            );
+            this.RESULTS_GALLERY = new MediaGallery(
+                new MediaGallery.Item[] {
+                    new MediaGallery.Item(
+                        new UnfurledMediaItem("https://media.discordapp.net/attachments/1416447713137918122/1416447840468733973/reddit-gambling.gif?ex=68ce2199&is=68ccd019&hm=aa45fa99bbd9db05ea23537e52ff5cc09bc2f97f737784a09ffdd237a500472d&="),
+                        null,
+                        false
+                    )
+                }
+            );
+            this.OPTIONS = options;
+        }
     }
 
     // this is the message in the channel that shows the animation and results and can be interacted with
@@ -59,13 +108,32 @@ public class RandomChallenge {
             RESULTS, // the message is displaying a challenge after a game has been selected
         }
         public final long ID;
+        public final ChallengeCatalog CATALOG; // stays the same even if the guild's catalog is reloaded
+        private final Random random; // picks the challenges
         public Entry currentlySelectedGame = null;
         public String result;
         private State state;
         private State lastState;
+        // the parts of the rendered message that only depend on the id are kept between renders
+        private Component[] readyComponents = null;
+        private ActionRow resultsButtonRow = null;
+        private Button selfDestructButton = null;
 
-        public OutputMessage(long id) {
+        public OutputMessage(long id, long seed, ChallengeCatalog catalog) {
             this.ID = id;
+            this.CATALOG = catalog;
+            this.random = new Random(seed);
+        }
+
+        private Button getSelfDestructButton() {
+            if (selfDestructButton == null) {
+                selfDestructButton = new Button(
+                    "selfDestruct " + ID,
+                    1,
+                    "Self destruct"
+                );
+            }
+            return selfDestructButton;
         }
 
         public State getState() {
@@ -82,7 +150,7 @@ public class RandomChallenge {
             if (state == State.RESULTS) {
                 // at this point, a game should have been selected anyway. still
                 if (currentlySelectedGame != null) {
-                    result = currentlySelectedGame.CHALLENGES[RandomChallenge.RANDOM.nextInt(currentlySelectedGame.CHALLENGES.length)];
+                    result = currentlySelectedGame.getChallenge(random.nextInt(currentlySelectedGame.getChallengeCount()));
                 } else {
                     result = null;
                 }
@@ -91,13 +159,7 @@ public class RandomChallenge {
         }
 
         public void selectGameByName(String name) {
-            for (RandomChallenge.Entry entry : RandomChallenge.entries) {
-                if (entry.GAME.equals(name)) {
-                    currentlySelectedGame = entry;
-                    return;
-                }
-            }
-            currentlySelectedGame = null;
+            currentlySelectedGame = CATALOG.GAME_NAME_INDEX.find(name);
             return;
         }
 
@@ -120,6 +182,11 @@ public class RandomChallenge {
         }
 
         public Interaction.CustomIDUpdatingResponse readySelectGameInteraction(ComponentInteraction componentInteraction) {
+            return readySelectGame(componentInteraction.DATA.VALUES[0]);
+        }
+
+        public synchronized Interaction.CustomIDUpdatingResponse readySelectGame(String gameName) {
+            InteractionRecorder.record(InteractionRecorder.CHALLENGE_SELECT, ID, 0, 0, gameName, null, null);
             if (state != State.READY) {
                 return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6), // acknowledge but don't do anything
@@ -131,7 +198,7 @@ public class RandomChallenge {
                     )
                 );
             } else {
-                selectGameByName(componentInteraction.DATA.VALUES[0]);
+                selectGameByName(gameName);
                 return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6), // acknowledge but don't do anything
                     new CustomIDListeningUpdate(null, null, null, null)
@@ -140,6 +207,11 @@ public class RandomChallenge {
         }
 
         public Interaction.CustomIDUpdatingResponse readyGetChallengeInteraction(ComponentInteraction componentInteraction) {
+            return readyGetChallenge();
+        }
+
+        public synchronized Interaction.CustomIDUpdatingResponse readyGetChallenge() {
+            InteractionRecorder.record(InteractionRecorder.CHALLENGE_GET, ID, 0);
             if (state != State.READY || currentlySelectedGame == null) {
                 return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6), // acknowledge but don't do anything
@@ -157,6 +229,11 @@ public class RandomChallenge {
         }
 
         public Interaction.CustomIDUpdatingResponse resultsResetInteraction(ComponentInteraction componentInteraction) {
+            return resultsReset();
+        }
+
+        public synchronized Interaction.CustomIDUpdatingResponse resultsReset() {
+            InteractionRecorder.record(InteractionRecorder.CHALLENGE_RESET, ID, 0);
             if (state != State.RESULTS) {
                 return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6), // acknowledge but don't do anything
@@ -174,11 +251,16 @@ public class RandomChallenge {
         }
 
         public Interaction.CustomIDUpdatingResponse selfDestructInteraction(ComponentInteraction componentInteraction) {
+            return selfDestruct(componentInteraction.CHANNEL_ID, componentInteraction.MESSAGE.ID);
+        }
+
+        public synchronized Interaction.CustomIDUpdatingResponse selfDestruct(long channelID, long messageID) {
+            InteractionRecorder.record(InteractionRecorder.CHALLENGE_SELF_DESTRUCT, ID, channelID, messageID, null, null, null);
             try {
-                DISCORD_BOT.apiCommunicationManager.restManager.deleteMessage(componentInteraction.CHANNEL_ID, componentInteraction.MESSAGE.ID);
+                restEndpoints.deleteMessage(channelID, messageID);
             } catch (ServerResponseException serverResponseException) {
-                //CONTINUE HERE
-                GeneralFormatter.printException("somethign went wrong", serverResponseException);
+                // the message stays, but the click is still acknowledged
+                Log.error("Couldn't delete a challenge message. ", serverResponseException);
             }
             return new Interaction.CustomIDUpdatingResponse(
                     new Interaction.MessageResponse(6), // acknowledge but don't do anything
@@ -192,38 +274,23 @@ public class RandomChallenge {
         }
     }
 
+    // loads the catalog of the guilds that don't have their own
     public static void loadEntries(String file) throws FileNotFoundException, MalformedException {
-        File dataFile = new File(file);
-        Scanner scanner = new Scanner(dataFile);
-        StringBuilder fileContents = new StringBuilder();
-        while (scanner.hasNextLine()) {
-            fileContents.append(scanner.nextLine());
-        }
-        Map<String, String> rawSeparatedJSON = GeneralFormatter.separateJSON(fileContents.toString());
-        String[] rawSeparatedEntries = GeneralFormatter.separateArray(rawSeparatedJSON.get("\"entries\""));
-        entries = new Entry[rawSeparatedEntries.length];
-        entryStringSelectionOptions = new StringSelect.Option[rawSeparatedEntries.length];
-        for (int i = 0; i < rawSeparatedEntries.length; i++) {
-            String rawEntry = rawSeparatedEntries[i];
-            Map<String, String> rawSeparatedEntry = GeneralFormatter.separateJSON(rawEntry);
-            String gameName = JSONFactory.extractString(rawSeparatedEntry.get("\"game\""));
-            String[] rawChallenges = GeneralFormatter.separateArray(rawSeparatedEntry.get("\"challenges\""));
-            String[] challenges = new String[rawChallenges.length];
-            for (int challengeIndex = 0; challengeIndex < challenges.length; challengeIndex++) {
-                challenges[challengeIndex] = JSONFactory.extractString(rawChallenges[challengeIndex]);
+        ChallengeCatalog catalog = ChallengeCatalog.load(file);
+        entries = catalog.ENTRIES;
+        defaultCatalog = catalog;
+        return;
+    }
+
+    // the guild's own catalog if it has one, otherwise the default one. in direct messages, the guild id is 0.
+    public static ChallengeCatalog getCatalog(long guildID) {
+        if (guildID != 0) {
+            ChallengeCatalog guildCatalog = GUILD_CATALOGS.get(guildID);
+            if (guildCatalog != null) {
+                return guildCatalog;
             }
-            entries[i] = new Entry(
-                gameName,
-                challenges
-            );
-            entryStringSelectionOptions[i] = new StringSelect.Option(
-                gameName,
-                gameName,
-                "testest"
-            );
         }
-        scanner.close();
-        return;
+        return defaultCatalog;
     }
 
     private static Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> getGameComponentNotificationCustomIDNotificationFunctions(OutputMessage outputMessage, OutputMessage.State state) {
@@ -237,7 +304,8 @@ public class RandomChallenge {
             toReturn.put("results reset " + outputMessage.ID, outputMessage::resultsResetInteraction);
             toReturn.put("selfDestruct " + outputMessage.ID, outputMessage::selfDestructInteraction);
         }
-        return toReturn;
+        // mashing is turned away before it gets to the message's lock
+        return ClickLimiter.CLICKS.wrap(toReturn, outputMessage.ID);
     }
 
     // returns a CustomIDListeningUpdate for switchting between game states.
@@ -261,94 +329,68 @@ public class RandomChallenge {
             return null;
         } else {
             OutputMessage.State state = outputMessage.state;
+            Templates currentTemplates = outputMessage.CATALOG.TEMPLATES;
             if (state == OutputMessage.State.REGISTERED || state == OutputMessage.State.READY) {
-                Component[] toReturn = new Component[] {
-                    new Container(
-                        new Component[] {
-                            new TextDisplay(
-                                "# Get a random Challenge!"
-                            ),
-                            new Separator(
-                                true,
-                                1
-                            ),
-                            new MediaGallery(
-                                new MediaGallery.Item[] {
-                                    new MediaGallery.Item(
-                                        new UnfurledMediaItem("https://cdn.discordapp.com/attachments/1416447713137918122/1416458293563490376/reddit-gambling-short.gif?ex=68c6eb15&is=68c59995&hm=48de03227dfc031eb67e73fdf99bef1d6596fd784f2b1e74ed7cbd49a7de4d14&"),
-                                        null,
-                                        false
-                                    )
-                                }
-                            ),
-                            new ActionRow(
-                                new Component[] {
-                                    new StringSelect(
-                                        "ready select " + outputMessage.ID,
-                                        entryStringSelectionOptions,
-                                        "placeholder"
-                                    )
-                                }
-                            )
-                        },
-                        13369344
-                    ),
-                    new ActionRow(
+                // nothing in the ready message depends on anything but the message id and the catalog, so it only has to be built once
+                if (outputMessage.readyComponents == null) {
+                    outputMessage.readyComponents = new Component[] {
+                        new Container(
+                            new Component[] {
+                                currentTemplates.HEADER,
+                                currentTemplates.SEPARATOR,
+                                currentTemplates.READY_GALLERY,
+                                new ActionRow(
+                                    new Component[] {
+                                        new StringSelect(
+                                            "ready select " + outputMessage.ID,
+                                            currentTemplates.OPTIONS,
+                                            "placeholder"
+                                        )
+                                    }
+                                )
+                            },
+                            Templates.COLOR
+                        ),
+                        new ActionRow(
+                            new Component[] {
+                                new Button(
+                                    "ready getChallenge " + outputMessage.ID,
+                                    4,
+                                    "Big round red button"
+                                ),
+                                outputMessage.getSelfDestructButton()
+                            }
+                        )
+                    };
+                }
+                return outputMessage.readyComponents;
+            } else if (state == OutputMessage.State.RESULTS) {
+                if (outputMessage.resultsButtonRow == null) {
+                    outputMessage.resultsButtonRow = new ActionRow(
                         new Component[] {
                             new Button(
-                                "ready getChallenge " + outputMessage.ID,
+                                "results reset " + outputMessage.ID,
                                 4,
                                 "Big round red button"
                             ),
-                            new Button(
-                                "selfDestruct " + outputMessage.ID,
-                                1,
-                                "Self destruct"
-                            )
+                            outputMessage.getSelfDestructButton()
                         }
-                    )
-                };
-                return toReturn;
-            } else if (state == OutputMessage.State.RESULTS) {
+                    );
+                }
+                // only the result text changes between two results messages
                 Component[] toReturn = new Component[] {
                     new Container(
                         new Component[] {
-                            new TextDisplay(
-                                "# Get a random Challenge!"
-                            ),
-                            new Separator(
-                                true,
-                                1
-                            ),
-                            new MediaGallery(
-                                new MediaGallery.Item[] {
-                                    new MediaGallery.Item(
-                                        new UnfurledMediaItem("https://media.discordapp.net/attachments/1416447713137918122/1416447840468733973/reddit-gambling.gif?ex=68ce2199&is=68ccd019&hm=aa45fa99bbd9db05ea23537e52ff5cc09bc2f97f737784a09ffdd237a500472d&="),
-                                        null,
-                                        false
-                                    )
-                                }
-                            ),
+                            currentTemplates.HEADER,
+                            currentTemplates.SEPARATOR,
+                            currentTemplates.RESULTS_GALLERY,
                             new TextDisplay(
                                 "Your challenge is: " + outputMessage.result
                             )
                         },
-                        13369344
+                        Templates.COLOR
                     ),
-                    new ActionRow(
-                        new Component[] {
-                            new Button(
-                                "results reset " + outputMessage.ID,
-                                4,
-                                "Big round red button"
-                            ),
-                            new Button(
-                                "selfDestruct " + outputMessage.ID,
-                                1,
-                                "Self destruct"
-                            )
-                        }
-                    )
+                    outputMessage.resultsButtonRow
                 };
                 return toReturn;
             } else {
@@ -364,6 +406,35 @@ public class RandomChallenge {
         } else {
             userID = slashCommandInteraction.USER.ID;
         }
+        // the game option is optional
+        String game = null;
+        if (slashCommandInteraction.DATA.OPTIONS != null && slashCommandInteraction.DATA.OPTIONS.length > 0) {
+            game = slashCommandInteraction.DATA.OPTIONS[0].STRING_VALUE;
+        }
+        return createOutputMessage(userID, slashCommandInteraction.GUILD_ID, game);
+    }
+
+    public static Interaction.CustomIDUpdatingResponse createOutputMessage(long userID) {
+        return createOutputMessage(userID, 0, null);
+    }
+
+    // the guild's catalog is looked up before taking the lock, since it may have to be loaded first
+    public static Interaction.CustomIDUpdatingResponse createOutputMessage(long userID, long guildID, String game) {
+        return createOutputMessage(userID, guildID, getCatalog(guildID), game, new OutputMessage[1]);
+    }
+
+    // for when the new message itself is needed rather than the response, like by InteractionDispatcher.
+    // getOutputMessageOfUser can't be used for that, since another message of the same user could have been created in between.
+    public static OutputMessage createAndGetOutputMessage(long userID, long guildID) {
+        OutputMessage[] created = new OutputMessage[1];
+        createOutputMessage(userID, guildID, getCatalog(guildID), null, created);
+        return created[0];
+    }
+
+    // with a game, the message starts out with a challenge for it. a game name that isn't complete means the first game that starts with it.
+    // this is synchronized because every user's last message is kept in one map
+    // the new message is put in created[0]
+    private static synchronized Interaction.CustomIDUpdatingResponse createOutputMessage(long userID, long guildID, ChallengeCatalog catalog, String game, OutputMessage[] created) {
         String[] oldMessageCustomIDs = null; // this stays null if there is no old message
         if (usersToOutputMessages.containsKey(userID)) {
             OutputMessage oldOutputMessage = usersToOutputMessages.get(userID);
@@ -380,9 +451,19 @@ public class RandomChallenge {
                 break;
             }
         }
-        OutputMessage newOutputMessage = new OutputMessage(id);
+        OutputMessage newOutputMessage = new OutputMessage(id, RANDOM.nextLong(), catalog);
+        InteractionRecorder.record(InteractionRecorder.CHALLENGE_CREATE, id, userID, guildID, null, null, null);
         usersToOutputMessages.put(userID, newOutputMessage);
+        created[0] = newOutputMessage;
         newOutputMessage.setState(OutputMessage.State.READY);
+        if (game != null) {
+            Entry[] matches = new Entry[1];
+            if (catalog.GAME_NAME_INDEX.complete(game.trim(), matches) > 0) {
+                // these are recorded like clicks, so replays get the same challenge
+                newOutputMessage.readySelectGame(matches[0].GAME);
+                newOutputMessage.readyGetChallenge();
+            }
+        }
         response.data.flags = (int) Math.pow(2, 15);
         response.data.components = getOutputMessageComponents(newOutputMessage);
         Map<String, Function<ComponentInteraction, Interaction.CustomIDUpdatingResponse>> componentNotificationStartListening
@@ -399,13 +480,41 @@ public class RandomChallenge {
         );
     }
 
-    public static SlashCommand getSlashCommand(String fileToLoad, DiscordBot discordBot) throws FileNotFoundException, MalformedException {
-        loadEntries(fileToLoad);
-        DISCORD_BOT = discordBot;
+    public static synchronized OutputMessage getOutputMessageOfUser(long userID) {
+        return usersToOutputMessages.get(userID);
+    }
+
+    // for users that aren't real, like the ones of WarmUp. their messages were never sent, so nobody listens to their custom ids.
+    public static synchronized void forgetOutputMessageOfUser(long userID) {
+        usersToOutputMessages.remove(userID);
+        return;
+    }
+
+    // only for replays, see InteractionRecorder
+    public static synchronized void setSeed(long seed) {
+        RANDOM = new Random(seed);
+        return;
+    }
+
+    public static void setRestEndpoints(RestEndpoints newRestEndpoints) {
+        restEndpoints = newRestEndpoints;
+        return;
+    }
+
+    // the catalog is loaded separately with loadEntries, so that it can be parsed while the bot is starting up.
+    // the rest endpoints are set separately with setRestEndpoints too.
+    public static SlashCommand getSlashCommand() {
         SlashCommand randomChallenge = new SlashCommand(
             "randomchallenge",
             "Get a random challenge!",
-            new SlashCommand.Option[] {},
+            new SlashCommand.Option[] {
+                // the library can't register an option for autocomplete or answer autocomplete interactions, so discord can't suggest games while typing.
+                // instead, what was typed is matched as the start of a game name when the command runs, see createOutputMessage.
+                new SlashCommand.Option(
+                    "game",
+                    "The game to get a challenge for"
+                )
+            },
             new int[] {0, 1},
             RandomChallenge::createOutputMessage
         );
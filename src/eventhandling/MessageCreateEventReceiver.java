@@ -1,12 +1,20 @@
 package eventhandling;
 
 import unrelibrary.discordobjects.Message;
+import rest.RestEndpoints;
+import logging.Log;
 import unrelibrary.restapi.ServerResponseException;
 import unrelibrary.APICommunicationManager;
 
 // static method set for receiving events where a message was created
 public class MessageCreateEventReceiver {
     public static long adminChannelID = 0L; // add your admin channel here
+    private static RestEndpoints restEndpoints;
+
+    public static void setRestEndpoints(RestEndpoints newRestEndpoints) {
+        restEndpoints = newRestEndpoints;
+        return;
+    }
 
     public static void adminSendCommand(String input, Message originalMessage, APICommunicationManager apiCommunicationManager) {
         input = input.trim();
@@ -17,11 +25,11 @@ public class MessageCreateEventReceiver {
             try {
                 Long channelID = Long.valueOf(input.substring(0, indexOfSpace));
                 String messageContent = input.substring(indexOfSpace, input.length());
-                apiCommunicationManager.restManager.sendMessage(channelID, messageContent);
+                restEndpoints.sendMessage(channelID, messageContent);
             } catch (NumberFormatException numberFormatException) {
-                // do nothing
+                Log.swallowed("admin send without a channel id");
             } catch (ServerResponseException serverResponseException) {
-                // do nothing
+                Log.error("Couldn't send the message. ", serverResponseException);
             }
             
         }
@@ -0,0 +1,78 @@
+package loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// a lock-free histogram of durations in nanoseconds. values below 32 get their own bucket, everything above is split into 16 buckets per power of two,
+// so every percentile is exact to about 6%.
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKETS = 32 + 59 * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private static int getBucket(long value) {
+        if (value < 32) {
+            return (int) Math.max(0, value);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) ((value >>> (magnitude - 4)) & (SUB_BUCKETS - 1));
+        return 32 + (magnitude - 5) * SUB_BUCKETS + subBucket;
+    }
+
+    // the smallest value that lands in the bucket
+    private static long getBucketValue(int bucket) {
+        if (bucket < 32) {
+            return bucket;
+        }
+        int magnitude = (bucket - 32) / SUB_BUCKETS + 5;
+        int subBucket = (bucket - 32) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket)) << (magnitude - 4);
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(getBucket(nanos));
+        return;
+    }
+
+    public long getCount() {
+        long toReturn = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            toReturn += counts.get(bucket);
+        }
+        return toReturn;
+    }
+
+    // percentile is from 0 to 100
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= threshold && seen > 0) {
+                return getBucketValue(bucket);
+            }
+        }
+        return getBucketValue(BUCKETS - 1);
+    }
+
+    public String getSummary() {
+        return "p50 " + formatNanos(getPercentile(50))
+            + ", p90 " + formatNanos(getPercentile(90))
+            + ", p99 " + formatNanos(getPercentile(99))
+            + ", p99.9 " + formatNanos(getPercentile(99.9))
+            + ", max " + formatNanos(getPercentile(100));
+    }
+
+    public static String formatNanos(long nanos) {
+        if (nanos < 10000) {
+            return nanos + "ns";
+        } else if (nanos < 10000000) {
+            return (nanos / 1000) + "us";
+        } else {
+            return (nanos / 1000000) + "ms";
+        }
+    }
+}
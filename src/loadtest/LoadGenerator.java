@@ -0,0 +1,287 @@
+package loadtest;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import commands.games.Blackjack;
+import commands.games.PlayingCard;
+import commands.utility.RandomChallenge;
+import logging.Log;
+import recording.InteractionRecorder;
+import recording.RoundHistory;
+import rest.RestQueue;
+import unrelibrary.MalformedException;
+import unrelibrary.discordobjects.interactions.Interaction;
+
+// drives the bot's interaction handlers without discord. this is run locally, not by the bot:
+// java loadtest.LoadGenerator [tables] [seats per table] [challenge sessions] [seconds] [rest round trip millis] [think millis] [challenge file] [trace file] [history file]
+// with a trace file, the run is recorded by InteractionRecorder, so it can be replayed with InteractionReplayer.
+// with a history file, every round is written by RoundHistory, so the tables' results can be scanned with RoundHistoryScanner.
+// every seat and every challenge session is one virtual thread that clicks like a user would, with a random think time between clicks.
+// the clicks go to the same user level methods that the interaction handlers delegate to, and the rest calls go to LocalRestEndpoints.
+// the latency of a click is the time until its response is built, which is everything the bot does before discord gets the response.
+public class LoadGenerator {
+    private static final LatencyHistogram LATENCIES = new LatencyHistogram();
+    private static final LongAdder INTERACTIONS = new LongAdder();
+    private static final Map<String, LongAdder> ERRORS = new ConcurrentHashMap<String, LongAdder>(); // exception class -> count
+    private static final long POLL_MILLIS = 20; // how often a seat looks at its table while it's waiting for the others
+    private static final int BET = 10;
+    private static final int DECKS = 6;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int tables = args.length > 0 ? Integer.valueOf(args[0]) : 1000;
+        int seats = args.length > 1 ? Integer.valueOf(args[1]) : 4;
+        int sessions = args.length > 2 ? Integer.valueOf(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.valueOf(args[3]) : 30;
+        long restMillis = args.length > 4 ? Long.valueOf(args[4]) : 50;
+        long thinkMillis = args.length > 5 ? Long.valueOf(args[5]) : 200;
+        String challengeFile = args.length > 6 ? args[6] : "./data/challenges.json";
+        String traceFile = args.length > 7 && !args[7].equals("-") ? args[7] : null; // "-" for a history without a trace
+        String historyFile = args.length > 8 ? args[8] : null;
+
+        LocalRestEndpoints restEndpoints = new LocalRestEndpoints(restMillis);
+        // like the bot, the handlers only queue their rest requests
+        RestQueue restQueue = new RestQueue(restEndpoints);
+        RandomChallenge.setRestEndpoints(restQueue);
+        if (sessions > 0) {
+            try {
+                RandomChallenge.loadEntries(challengeFile);
+            } catch (FileNotFoundException | MalformedException exception) {
+                System.out.println("Couldn't load " + challengeFile + " (" + exception.getClass().getSimpleName() + "), so there are no challenge sessions.");
+                sessions = 0;
+            }
+        }
+
+        if (traceFile != null) {
+            InteractionRecorder.start(traceFile);
+        }
+        if (historyFile != null) {
+            RoundHistory.start(historyFile);
+        }
+        long heapBefore = getUsedHeap();
+        System.out.println("Running " + tables + " tables with " + seats + " seats and " + sessions + " challenge sessions for " + seconds + "s.");
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + seconds * 1000000000L;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int table = 0; table < tables; table++) {
+            long firstUserID = (long) table * seats + 1;
+            Thread thread = Thread.ofVirtual().start(() -> runTable(firstUserID, seats, deadlineNanos, thinkMillis, threads));
+            synchronized (threads) {
+                threads.add(thread);
+            }
+        }
+        for (int session = 0; session < sessions; session++) {
+            long userID = (long) tables * seats + session + 1;
+            Thread thread = Thread.ofVirtual().start(() -> runChallengeSession(userID, deadlineNanos, thinkMillis));
+            synchronized (threads) {
+                threads.add(thread);
+            }
+        }
+        // tables add their seats to the list, so it's joined until nothing new shows up
+        for (int joined = 0; ; joined++) {
+            Thread thread;
+            synchronized (threads) {
+                if (joined >= threads.size()) {
+                    break;
+                }
+                thread = threads.get(joined);
+            }
+            thread.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1000000000.0;
+        InteractionRecorder.stop();
+        RoundHistory.stop();
+        restQueue.awaitIdle(10000);
+        long heapAfter = getUsedHeap();
+
+        long interactions = INTERACTIONS.sum();
+        System.out.println("Interactions: " + interactions + " (" + String.format("%.1f", interactions / elapsedSeconds) + "/s)");
+        System.out.println("Latency: " + LATENCIES.getSummary());
+        System.out.println("Heap after gc: " + (heapBefore / 1024) + "KiB before, " + (heapAfter / 1024) + "KiB after");
+        System.out.println("Rest calls: " + restEndpoints.SENT_MESSAGES.sum() + " sent, " + restEndpoints.DELETED_MESSAGES.sum() + " deleted");
+        System.out.println("Rest queue: " + restQueue.BATCHED.sum() + " batched, " + restQueue.RETRIED.sum() + " retried, " + restQueue.DROPPED.sum() + " dropped, "
+            + restQueue.FAILED.sum() + " failed, " + restQueue.getPending() + " still pending, " + restQueue.EVICTED.sum() + " idle routes forgotten");
+        System.out.println("Message edits: " + Blackjack.SENT_EDITS.sum() + " sent, " + Blackjack.COALESCED_EDITS.sum() + " coalesced");
+        System.out.println("Profiles: " + Blackjack.PROFILES.size() + " cached, " + Blackjack.PROFILES.HITS.sum() + " hits, " + Blackjack.PROFILES.MISSES.sum() + " misses, " + Blackjack.PROFILES.EVICTIONS.sum() + " evicted");
+        if (historyFile != null) {
+            System.out.println("Round history: " + RoundHistory.PUBLISHED.sum() + " rounds in " + RoundHistory.BLOCKS.sum() + " blocks, " + RoundHistory.DROPPED.sum() + " dropped");
+        }
+        System.out.println("Games still open: " + Blackjack.openGames());
+        Log.flush(1000);
+        System.out.println("Log: " + Log.getSummary());
+        Map<String, LongAdder> sortedErrors = new TreeMap<String, LongAdder>(ERRORS);
+        for (Map.Entry<String, LongAdder> error : sortedErrors.entrySet()) {
+            System.out.println("Error " + error.getKey() + ": " + error.getValue().sum());
+        }
+        return;
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void click(Supplier<?> interaction) {
+        long startNanos = System.nanoTime();
+        try {
+            interaction.get();
+        } catch (Exception exception) {
+            ERRORS.computeIfAbsent(exception.getClass().getName(), key -> new LongAdder()).increment();
+        }
+        LATENCIES.record(System.nanoTime() - startNanos);
+        INTERACTIONS.increment();
+        return;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return;
+    }
+
+    private static void think(long thinkMillis) {
+        if (thinkMillis > 0) {
+            sleep(ThreadLocalRandom.current().nextLong(thinkMillis + 1));
+        }
+        return;
+    }
+
+    // the host opens the table, the other seats join and the host starts once everybody is there
+    private static void runTable(long hostID, int seats, long deadlineNanos, long thinkMillis, List<Thread> threads) {
+        Blackjack.Game[] game = new Blackjack.Game[1];
+        click(() -> {
+            game[0] = Blackjack.createGame("Load test " + hostID, DECKS, hostID, "Seat " + hostID, null);
+            return game[0].call(game[0]::openResponse);
+        });
+        if (game[0] == null) {
+            return;
+        }
+        // every other table uses continuous shuffling
+        if (hostID % 2 == 0) {
+            click(game[0], () -> game[0].readyToggleShuffle(hostID));
+        }
+        for (int seat = 1; seat < seats; seat++) {
+            long userID = hostID + seat;
+            Thread thread = Thread.ofVirtual().unstarted(() -> runSeat(game[0], userID, seats, deadlineNanos, thinkMillis));
+            synchronized (threads) {
+                threads.add(thread);
+            }
+            thread.start();
+        }
+        runSeat(game[0], hostID, seats, deadlineNanos, thinkMillis);
+        return;
+    }
+
+    // a click on a table goes through the table's mailbox and edit coalescing, just like the interaction handlers do
+    private static void click(Blackjack.Game game, Supplier<Interaction.CustomIDUpdatingResponse> interaction) {
+        click(() -> game.coalesce(interaction));
+        return;
+    }
+
+    private static void runSeat(Blackjack.Game game, long userID, int seats, long deadlineNanos, long thinkMillis) {
+        boolean host = userID == game.HOST_ID;
+        if (!host) {
+            think(thinkMillis);
+            click(game, () -> game.readyJoin(userID, "Seat " + userID, null));
+        }
+        while (System.nanoTime() < deadlineNanos) {
+            List<Supplier<Interaction.CustomIDUpdatingResponse>> interactions = game.call(() -> chooseInteractions(game, userID, host, seats));
+            if (interactions == null) {
+                return;
+            } else if (interactions.isEmpty()) {
+                sleep(POLL_MILLIS);
+            } else {
+                for (Supplier<Interaction.CustomIDUpdatingResponse> interaction : interactions) {
+                    click(game, interaction);
+                }
+                think(thinkMillis);
+            }
+        }
+        if (host) {
+            Blackjack.Game.State state = game.call(game::getState);
+            if (state == Blackjack.Game.State.READY) {
+                click(game, () -> game.readyLeave(userID));
+            } else if (state == Blackjack.Game.State.BETTING_PHASE) {
+                click(game, () -> game.bettingPhaseEnd(userID));
+            } else if (state == Blackjack.Game.State.IN_GAME) {
+                click(game, () -> game.inGameEnd(userID));
+            } else if (state == Blackjack.Game.State.RESULTS) {
+                click(game, () -> game.resultsEnd(userID));
+            }
+        }
+        return;
+    }
+
+    // runs on the table's mailbox. returns what the seat clicks next, nothing while it waits for the others, or null once it's out of the game.
+    // WarmUp plays its tables with this too.
+    static List<Supplier<Interaction.CustomIDUpdatingResponse>> chooseInteractions(Blackjack.Game game, long userID, boolean host, int seats) {
+        List<Supplier<Interaction.CustomIDUpdatingResponse>> toReturn = new ArrayList<Supplier<Interaction.CustomIDUpdatingResponse>>(2);
+        Blackjack.Game.State state = game.getState();
+        Blackjack.Game.Participant participant = game.getParticipantByUserID(userID);
+        if (state == Blackjack.Game.State.FINISHED || participant == null) {
+            return null;
+        }
+        if (state == Blackjack.Game.State.READY) {
+            if (host && game.getParticipants().size() >= seats) {
+                toReturn.add(() -> game.readyStart(userID));
+            }
+        } else if (state == Blackjack.Game.State.BETTING_PHASE) {
+            if (participant.playingState == Blackjack.Game.Participant.PlayingState.NOT_YET_BET) {
+                String bet = String.valueOf(Math.min(BET, participant.currency));
+                // opening the modal and submitting it are two interactions
+                toReturn.add(() -> game.bettingPhaseBetButton(userID));
+                toReturn.add(() -> game.bettingPhaseBetModal(userID, bet));
+            }
+        } else if (state == Blackjack.Game.State.IN_GAME) {
+            if (participant.playingState == Blackjack.Game.Participant.PlayingState.HAS_BET
+                && participant.handState == Blackjack.Game.Participant.HandState.UNFINISHED) {
+                if (PlayingCard.getBlackjackValue(participant.hand) < 17) {
+                    toReturn.add(() -> game.inGameHit(userID));
+                } else {
+                    toReturn.add(() -> game.inGameStand(userID));
+                }
+            }
+        } else if (state == Blackjack.Game.State.RESULTS) {
+            if (!participant.ready) {
+                toReturn.add(() -> game.resultsReadyUp(userID));
+            }
+        }
+        return toReturn;
+    }
+
+    // a session sends /randomchallenge, rolls a few challenges and sometimes deletes the message
+    private static void runChallengeSession(long userID, long deadlineNanos, long thinkMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadlineNanos) {
+            click(() -> RandomChallenge.createOutputMessage(userID));
+            RandomChallenge.OutputMessage outputMessage = RandomChallenge.getOutputMessageOfUser(userID);
+            int rolls = 1 + random.nextInt(5);
+            for (int roll = 0; roll < rolls && System.nanoTime() < deadlineNanos; roll++) {
+                String game = RandomChallenge.entries[random.nextInt(RandomChallenge.entries.length)].GAME;
+                think(thinkMillis);
+                click(() -> outputMessage.readySelectGame(game));
+                think(thinkMillis);
+                click(() -> outputMessage.readyGetChallenge());
+                think(thinkMillis);
+                click(() -> outputMessage.resultsReset());
+            }
+            if (random.nextInt(5) == 0) {
+                think(thinkMillis);
+                click(() -> outputMessage.selfDestruct(0, outputMessage.ID));
+            }
+        }
+        return;
+    }
+}
@@ -0,0 +1,40 @@
+package loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import rest.RestEndpoints;
+import unrelibrary.restapi.ServerResponseException;
+
+// a stand-in for discord's rest endpoints. requests are only counted, and can be given an artificial round trip time.
+public class LocalRestEndpoints implements RestEndpoints {
+    public final long ROUND_TRIP_MILLIS;
+    public final LongAdder SENT_MESSAGES = new LongAdder();
+    public final LongAdder DELETED_MESSAGES = new LongAdder();
+
+    public LocalRestEndpoints(long roundTripMillis) {
+        this.ROUND_TRIP_MILLIS = roundTripMillis;
+    }
+
+    public void sendMessage(long channelID, String content) throws ServerResponseException {
+        SENT_MESSAGES.increment();
+        simulateRoundTrip();
+        return;
+    }
+
+    public void deleteMessage(long channelID, long messageID) throws ServerResponseException {
+        DELETED_MESSAGES.increment();
+        simulateRoundTrip();
+        return;
+    }
+
+    private void simulateRoundTrip() {
+        if (ROUND_TRIP_MILLIS > 0) {
+            try {
+                Thread.sleep(ROUND_TRIP_MILLIS);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return;
+    }
+}
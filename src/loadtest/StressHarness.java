@@ -0,0 +1,324 @@
+package loadtest;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import commands.games.Blackjack;
+import commands.games.PlayingCard;
+import commands.games.PlayingCardDealer;
+import commands.utility.RandomChallenge;
+import recording.InteractionRecorder;
+import unrelibrary.MalformedException;
+
+// fires random interactions from many threads at a few shared games and challenge messages, and checks invariants after every one.
+// this is run locally, not by the bot:
+// java loadtest.StressHarness [tables] [threads] [seconds] [challenge file] [trace file]
+// unlike LoadGenerator, the clicks don't make sense: anybody clicks anything at any time, with any bet, and timeouts fire whenever.
+// the threads are platform threads, so they are preempted anywhere and not only where a virtual thread would yield.
+// the invariants of a game are checked on its mailbox right after every interaction:
+// - nothing else runs on the mailbox at the same time
+// - the participants' currency and the house balance add up to what the participants started with
+// - when a round is evaluated, every seat's currency changes by what its cards win or lose against the dealer's, worked out here from the cards and
+//   the bet, so that a wrong payout isn't hidden by the house balance, which the game books from the same payout
+// - nobody has negative currency or bets more than they have
+// - no hand has a null card in it, and the dealer's counts match the cards left in the shoe
+// - no handler throws
+// challenge messages are only checked for throwing handlers and for results without a challenge.
+// the clicks call the handlers directly, so the versioned custom ids, edit coalescing, hibernation, the rest queue and the round history aren't covered.
+// with a trace file, a failing run can be replayed in the order it happened with InteractionReplayer.
+// the exit code is 1 if anything was violated.
+public class StressHarness {
+    private static final int USERS_PER_TABLE = 8; // more than fit, so joins also fail
+    private static final int DECKS = 1; // so the shoe runs out often
+    private static final String[] BETS = new String[] {"10", "1", "0", "-5", "1000", "1001", "99999999999", "abc", "", " 50 "};
+    private static final Map<String, LongAdder> VIOLATIONS = new ConcurrentHashMap<String, LongAdder>(); // kind -> count
+    private static final LongAdder INTERACTIONS = new LongAdder();
+    private static final LongAdder CHECKS = new LongAdder();
+    private static final LongAdder GAMES = new LongAdder();
+    private static final int MAX_PRINTED = 20;
+    private static final AtomicInteger printed = new AtomicInteger(0);
+
+    // what a game looked like before an interaction, so that check can tell what the interaction changed
+    private static class Snapshot {
+        private final Blackjack.Game.State STATE;
+        private final Map<Blackjack.Game.Participant, Integer> PARTICIPANT_TO_CURRENCY = new IdentityHashMap<Blackjack.Game.Participant, Integer>();
+
+        private Snapshot(Blackjack.Game game) {
+            this.STATE = game.getState();
+            for (Blackjack.Game.Participant participant : game.getParticipants()) {
+                PARTICIPANT_TO_CURRENCY.put(participant, participant.currency);
+            }
+        }
+    }
+
+    // a game with the users that click on it
+    private static class Table {
+        private final Blackjack.Game GAME;
+        private final long FIRST_USER_ID; // the host
+        private final AtomicInteger inside = new AtomicInteger(0); // interactions running on the mailbox right now, which should never be more than one
+
+        private Table(Blackjack.Game game, long firstUserID) {
+            this.GAME = game;
+            this.FIRST_USER_ID = firstUserID;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int tables = args.length > 0 ? Integer.valueOf(args[0]) : 4;
+        int threads = args.length > 1 ? Integer.valueOf(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.valueOf(args[2]) : 10;
+        String challengeFile = args.length > 3 ? args[3] : "./data/challenges.json";
+        String traceFile = args.length > 4 ? args[4] : null;
+
+        RandomChallenge.setRestEndpoints(new LocalRestEndpoints(0));
+        boolean challenges = true;
+        try {
+            RandomChallenge.loadEntries(challengeFile);
+        } catch (FileNotFoundException | MalformedException exception) {
+            System.out.println("Couldn't load " + challengeFile + " (" + exception.getClass().getSimpleName() + "), so only blackjack is stressed.");
+            challenges = false;
+        }
+        if (traceFile != null) {
+            InteractionRecorder.start(traceFile);
+        }
+
+        AtomicReferenceArray<Table> sharedTables = new AtomicReferenceArray<Table>(tables);
+        for (int table = 0; table < tables; table++) {
+            sharedTables.set(table, openTable((long) table * USERS_PER_TABLE + 1));
+        }
+        System.out.println("Stressing " + tables + " tables" + (challenges ? " and challenge messages" : "") + " with " + threads + " threads for " + seconds + "s.");
+        long deadlineNanos = System.nanoTime() + seconds * 1000000000L;
+        boolean stressChallenges = challenges;
+        List<Thread> threadList = new ArrayList<Thread>();
+        for (int thread = 0; thread < threads; thread++) {
+            threadList.add(Thread.ofPlatform().start(() -> run(sharedTables, stressChallenges, deadlineNanos)));
+        }
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+        InteractionRecorder.stop();
+
+        System.out.println("Interactions: " + INTERACTIONS.sum() + ", checks: " + CHECKS.sum() + ", games played: " + GAMES.sum());
+        Map<String, LongAdder> sortedViolations = new TreeMap<String, LongAdder>(VIOLATIONS);
+        for (Map.Entry<String, LongAdder> violation : sortedViolations.entrySet()) {
+            System.out.println("Violated " + violation.getKey() + ": " + violation.getValue().sum());
+        }
+        if (sortedViolations.isEmpty()) {
+            System.out.println("No invariants were violated.");
+        } else {
+            System.exit(1);
+        }
+        return;
+    }
+
+    private static Table openTable(long hostID) {
+        Blackjack.Game game = Blackjack.createGame("Stress " + hostID, DECKS, hostID, "User " + hostID, null);
+        game.call(game::openResponse);
+        GAMES.increment();
+        return new Table(game, hostID);
+    }
+
+    private static void violate(String kind, String details) {
+        VIOLATIONS.computeIfAbsent(kind, key -> new LongAdder()).increment();
+        if (printed.getAndIncrement() < MAX_PRINTED) {
+            System.out.println("Violated " + kind + ": " + details);
+        }
+        return;
+    }
+
+    private static void run(AtomicReferenceArray<Table> sharedTables, boolean challenges, long deadlineNanos) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadlineNanos) {
+            if (challenges && random.nextInt(4) == 0) {
+                clickChallenge(random, sharedTables.length() * USERS_PER_TABLE);
+                continue;
+            }
+            int index = random.nextInt(sharedTables.length());
+            Table table = sharedTables.get(index);
+            long userID = table.FIRST_USER_ID + random.nextInt(USERS_PER_TABLE);
+            int action = random.nextInt(22);
+            String bet = BETS[random.nextInt(BETS.length)];
+            Runnable interaction = () -> {
+                if (table.inside.getAndIncrement() != 0) {
+                    violate("mailbox exclusion", "two interactions ran on game " + table.GAME.ID + " at once");
+                }
+                Snapshot before = new Snapshot(table.GAME);
+                try {
+                    click(table.GAME, action, userID, bet);
+                } catch (Exception exception) {
+                    violate("handler threw " + exception.getClass().getName(), String.valueOf(exception.getMessage()));
+                }
+                check(table.GAME, before);
+                table.inside.decrementAndGet();
+            };
+            // most clicks wait for their response like the interaction handlers, some are posted like timeouts
+            if (random.nextInt(8) == 0) {
+                table.GAME.post(interaction);
+            } else {
+                table.GAME.call(() -> {
+                    interaction.run();
+                    return null;
+                });
+            }
+            INTERACTIONS.increment();
+            if (table.GAME.call(table.GAME::getState) == Blackjack.Game.State.FINISHED) {
+                sharedTables.compareAndSet(index, table, openTable(table.FIRST_USER_ID));
+            }
+        }
+        return;
+    }
+
+    private static void click(Blackjack.Game game, int action, long userID, String bet) {
+        switch (action) {
+            case 0: case 1: game.readyJoin(userID, "User " + userID, null); break;
+            case 2: game.readyLeave(userID); break;
+            case 3: game.readyStart(userID); break;
+            case 4: game.readyAddBot(userID); break;
+            case 5: game.readyToggleShuffle(userID); break;
+            case 6: game.bettingPhaseBetButton(userID); break;
+            case 7: case 8: game.bettingPhaseBetModal(userID, bet); break;
+            case 9: game.bettingPhaseEnd(userID); break;
+            case 10: game.bettingPhaseLeave(userID); break;
+            case 11: case 12: game.inGameHit(userID); break;
+            case 13: game.inGameStand(userID); break;
+            case 14: game.inGameDoubleDown(userID); break;
+            case 15: game.inGameHint(userID); break;
+            case 16: game.inGameLeave(userID); break;
+            case 17: game.resultsReadyUp(userID); break;
+            case 18: game.resultsLeave(userID); break;
+            case 19: game.autoSkipBet(userID); break;
+            case 20: game.autoStand(userID); break;
+            case 21: game.autoReadyUp(userID); break;
+            default: break;
+        }
+        // ending the game is rare, so that games get to play a few rounds
+        if (ThreadLocalRandom.current().nextInt(500) == 0) {
+            switch (ThreadLocalRandom.current().nextInt(4)) {
+                case 0: game.bettingPhaseEnd(game.HOST_ID); break;
+                case 1: game.inGameEnd(game.HOST_ID); break;
+                case 2: game.resultsEnd(game.HOST_ID); break;
+                default: game.timeOut(); break;
+            }
+        }
+        return;
+    }
+
+    // runs on the game's mailbox
+    private static void check(Blackjack.Game game, Snapshot before) {
+        CHECKS.increment();
+        Blackjack.Game.State state = game.getState();
+        // the round was evaluated if the interaction went from betting or playing through the results
+        if ((before.STATE == Blackjack.Game.State.BETTING_PHASE || before.STATE == Blackjack.Game.State.IN_GAME)
+            && (state == Blackjack.Game.State.RESULTS || (state == Blackjack.Game.State.FINISHED && game.getLastState() == Blackjack.Game.State.RESULTS))) {
+            checkPayouts(game, before);
+        }
+        long currency = 0;
+        for (Blackjack.Game.Participant participant : game.getParticipants()) {
+            currency += participant.currency;
+            if (participant.currency < 0) {
+                violate("currency is never negative", participant.PROFILE.GLOBAL_NAME + " has " + participant.currency + " in game " + game.ID);
+            }
+            if ((state == Blackjack.Game.State.BETTING_PHASE || state == Blackjack.Game.State.IN_GAME)
+                && participant.playingState == Blackjack.Game.Participant.PlayingState.HAS_BET
+                && (participant.bet <= 0 || participant.bet > participant.currency)) {
+                violate("bets are covered", participant.PROFILE.GLOBAL_NAME + " bets " + participant.bet + " with " + participant.currency + " in game " + game.ID);
+            }
+            if (participant.hand.contains(null)) {
+                violate("the shoe never deals null", participant.PROFILE.GLOBAL_NAME + "'s hand in game " + game.ID);
+            }
+        }
+        long startingCurrency = (long) game.getParticipants().size() * Blackjack.Game.Participant.STARTING_CURRENCY;
+        if (currency + game.getHouseBalance() != startingCurrency) {
+            violate("currency is conserved", "game " + game.ID + " has " + currency + " plus " + game.getHouseBalance() + " for the house, instead of " + startingCurrency);
+        }
+        if (game.dealerHand.contains(null)) {
+            violate("the shoe never deals null", "the dealer's hand in game " + game.ID);
+        }
+        PlayingCardDealer dealer = game.playingCardDealer;
+        int counted = 0;
+        for (int rank = 0; rank < PlayingCardDealer.BLACKJACK_RANKS; rank++) {
+            counted += dealer.getRankCount(rank);
+        }
+        if (counted != dealer.cardsLeft() || dealer.cardsLeft() < 0 || dealer.cardsLeft() > dealer.CARDS) {
+            violate("the rank counts match the shoe", "game " + game.ID + " counts " + counted + " of " + dealer.cardsLeft() + " cards left");
+        }
+        return;
+    }
+
+    // runs on the game's mailbox
+    private static void checkPayouts(Blackjack.Game game, Snapshot before) {
+        for (Blackjack.Game.Participant participant : game.getParticipants()) {
+            Integer currencyBefore = before.PARTICIPANT_TO_CURRENCY.get(participant);
+            Blackjack.Game.Participant.PlayingState playingState = participant.playingState;
+            if (currencyBefore == null || playingState == Blackjack.Game.Participant.PlayingState.BANKRUPT
+                || playingState == Blackjack.Game.Participant.PlayingState.LEFT || playingState == Blackjack.Game.Participant.PlayingState.SITTING_OUT) {
+                continue;
+            }
+            long expected = currencyBefore + getPayout(participant.hand, game.dealerHand, participant.bet);
+            if (participant.currency != expected) {
+                violate("payouts match the cards", participant.PROFILE.GLOBAL_NAME + " has " + participant.currency + " instead of " + expected + " after betting " + participant.bet
+                    + " with " + PlayingCard.getFaceValueNamesFromList(participant.hand) + " against " + PlayingCard.getFaceValueNamesFromList(game.dealerHand) + " in game " + game.ID);
+            }
+        }
+        return;
+    }
+
+    // what a hand wins or loses against the dealer's hand. of two hands with the same value, the one with two cards wins,
+    // and if that's the player's, it's a blackjack and pays 3:2, rounded down to whole currency.
+    private static long getPayout(List<PlayingCard> hand, List<PlayingCard> dealerHand, int bet) {
+        int value = PlayingCard.getBlackjackValue(hand);
+        int dealerValue = PlayingCard.getBlackjackValue(dealerHand);
+        if (value > 21) {
+            return -bet;
+        } else if (dealerValue > 21) {
+            return bet;
+        } else if (value != dealerValue) {
+            return value > dealerValue ? bet : -bet;
+        } else if ((hand.size() == 2) == (dealerHand.size() == 2)) {
+            return 0;
+        } else if (hand.size() == 2) {
+            return (long) bet * 3 / 2;
+        } else {
+            return -bet;
+        }
+    }
+
+    // challenge messages are shared too: any user clicks on any user's last message
+    private static void clickChallenge(ThreadLocalRandom random, int users) {
+        long userID = 1 + random.nextInt(users);
+        RandomChallenge.OutputMessage outputMessage = RandomChallenge.getOutputMessageOfUser(userID);
+        try {
+            if (outputMessage == null || random.nextInt(6) == 0) {
+                String game = random.nextBoolean() ? null : RandomChallenge.entries[random.nextInt(RandomChallenge.entries.length)].GAME.substring(0, 1);
+                RandomChallenge.createOutputMessage(userID, 0, game);
+            } else {
+                switch (random.nextInt(4)) {
+                    case 0: outputMessage.readySelectGame(RandomChallenge.entries[random.nextInt(RandomChallenge.entries.length)].GAME); break;
+                    case 1: outputMessage.readyGetChallenge(); break;
+                    case 2: outputMessage.resultsReset(); break;
+                    default: outputMessage.selfDestruct(userID, outputMessage.ID); break;
+                }
+                synchronized (outputMessage) {
+                    CHECKS.increment();
+                    if (outputMessage.getState() == RandomChallenge.OutputMessage.State.RESULTS && outputMessage.result == null) {
+                        violate("challenge results have a challenge", "message " + outputMessage.ID);
+                    }
+                }
+            }
+        } catch (Exception exception) {
+            violate("handler threw " + exception.getClass().getName(), String.valueOf(exception.getMessage()));
+        }
+        INTERACTIONS.increment();
+        return;
+    }
+}
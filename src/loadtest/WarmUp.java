@@ -0,0 +1,171 @@
+package loadtest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import commands.games.BasicStrategy;
+import commands.games.Blackjack;
+import commands.utility.RandomChallenge;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+import unrelibrary.discordobjects.interactions.Interaction;
+
+// plays synthetic tables and challenge sessions before the bot goes online, so that the first real clicks don't run in the interpreter, see Main's "--warmup".
+// the clicks go to the same user level methods as LoadGenerator's, but one after another on one thread, without think times and without waiting for coalescing.
+// the tables are played until they're over, which deletes them, and the challenge messages are forgotten, so nothing of the warm-up stays around.
+// this has to run before the recorder, the round history and the hibernation are started, since those would take the warm-up for real traffic.
+// the compilations of HOT_METHODS are watched with a jfr stream. the warm-up ends once all of them were compiled by the optimizing compiler, or at the time limit.
+public class WarmUp {
+    private static final String[] HOT_METHODS = new String[] {
+        "commands.games.Blackjack.getGameComponents",
+        "commands.games.Blackjack.getParticipantText",
+        "commands.games.PlayingCard.getBlackjackValue",
+        "commands.games.Blackjack$Game.playBotHands",
+        "commands.games.Blackjack$Game.finalDealing",
+        "commands.games.Blackjack$Game.evaluateRound",
+        "commands.utility.RandomChallenge.getOutputMessageComponents"
+    };
+    private static final int OPTIMIZED_LEVEL = 4; // the tier of c2
+    private static final int SEATS = 3; // and a bot, if the strategy tables are loaded
+    private static final int PASSES = 40; // per table. every pass lets every seat click what it would click next.
+    private static final int DECKS = 6;
+    private static final int ROLLS = 5; // per challenge session
+    private static final long FIRST_USER_ID = 1; // real users have snowflakes, which are far above these
+
+    private final long MAX_MILLIS;
+    private final boolean CHALLENGES;
+    private final Map<String, Instant> methodToCompiledTime = new ConcurrentHashMap<String, Instant>();
+    private long startNanos;
+    private Instant startTime;
+    private long tables = 0;
+    private long sessions = 0;
+
+    public WarmUp(long maxMillis, boolean challenges) {
+        this.MAX_MILLIS = maxMillis;
+        this.CHALLENGES = challenges;
+    }
+
+    // returns whether every hot method was compiled in time
+    public boolean run() {
+        startNanos = System.nanoTime();
+        startTime = Instant.now();
+        long deadlineNanos = startNanos + MAX_MILLIS * 1000000L;
+        // the tables are played to the end by their seats, a timeout would only end them early
+        Blackjack.setTimeoutsEnabled(false);
+        try (RecordingStream compilations = new RecordingStream()) {
+            // compilations are only recorded above a threshold by default
+            compilations.enable("jdk.Compilation").withThreshold(Duration.ZERO);
+            compilations.onEvent("jdk.Compilation", this::onCompilation);
+            compilations.startAsync();
+            while (methodToCompiledTime.size() < HOT_METHODS.length && System.nanoTime() < deadlineNanos) {
+                playTable(FIRST_USER_ID + (tables % 2) * SEATS);
+                tables++;
+                if (CHALLENGES) {
+                    playChallengeSession(FIRST_USER_ID + 2 * SEATS, sessions * ROLLS);
+                    sessions++;
+                }
+            }
+        } finally {
+            Blackjack.setTimeoutsEnabled(true);
+            RandomChallenge.forgetOutputMessageOfUser(FIRST_USER_ID + 2 * SEATS);
+        }
+        StringBuilder summaryBuilder = new StringBuilder();
+        summaryBuilder.append("Warm-up: ").append(tables).append(" tables and ").append(sessions).append(" challenge sessions in ")
+            .append(LatencyHistogram.formatNanos(System.nanoTime() - startNanos)).append(", ")
+            .append(methodToCompiledTime.size()).append("/").append(HOT_METHODS.length).append(" hot methods compiled");
+        boolean toReturn = true;
+        for (String method : HOT_METHODS) {
+            if (!methodToCompiledTime.containsKey(method)) {
+                summaryBuilder.append(toReturn ? ", still waiting for " : ", ").append(getShortName(method));
+                toReturn = false;
+            }
+        }
+        System.out.println(summaryBuilder.toString());
+        return toReturn;
+    }
+
+    // called by the jfr stream's thread, which gets the events in batches. so the time of a compilation is taken from its event.
+    private void onCompilation(RecordedEvent event) {
+        if (!event.getBoolean("succeded") || event.getShort("compileLevel") < OPTIMIZED_LEVEL) {
+            return;
+        }
+        RecordedMethod recordedMethod = event.getValue("method");
+        String method = recordedMethod.getType().getName() + "." + recordedMethod.getName();
+        for (String hotMethod : HOT_METHODS) {
+            if (hotMethod.equals(method) && methodToCompiledTime.putIfAbsent(method, event.getEndTime()) == null) {
+                System.out.println("Warm-up: " + getShortName(method) + " was compiled after " + LatencyHistogram.formatNanos(Duration.between(startTime, event.getEndTime()).toNanos()));
+            }
+        }
+        return;
+    }
+
+    private static String getShortName(String method) {
+        return method.substring(method.lastIndexOf('.', method.lastIndexOf('.') - 1) + 1);
+    }
+
+    // the host opens a table, the other seats and a bot join, and they play PASSES passes before the host ends it
+    private static void playTable(long hostID) {
+        Blackjack.Game game = Blackjack.createGame("Warm-up", DECKS, hostID, "Seat " + hostID, null);
+        game.call(game::openResponse);
+        if (hostID % 2 == 0) {
+            game.call(() -> game.readyToggleShuffle(hostID));
+        }
+        for (long userID = hostID + 1; userID < hostID + SEATS; userID++) {
+            long seatID = userID;
+            game.call(() -> game.readyJoin(seatID, "Seat " + seatID, null));
+        }
+        if (BasicStrategy.isLoaded()) {
+            game.call(() -> game.readyAddBot(hostID));
+        }
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (long userID = hostID; userID < hostID + SEATS; userID++) {
+                long seatID = userID;
+                List<Supplier<Interaction.CustomIDUpdatingResponse>> interactions = game.call(() -> LoadGenerator.chooseInteractions(game, seatID, seatID == hostID, SEATS));
+                if (interactions != null) {
+                    for (Supplier<Interaction.CustomIDUpdatingResponse> interaction : interactions) {
+                        game.call(interaction);
+                    }
+                }
+            }
+        }
+        game.call(() -> endTable(game, hostID));
+        return;
+    }
+
+    // runs on the table's mailbox
+    private static Interaction.CustomIDUpdatingResponse endTable(Blackjack.Game game, long hostID) {
+        Blackjack.Game.State state = game.getState();
+        Interaction.CustomIDUpdatingResponse toReturn = null;
+        if (state == Blackjack.Game.State.READY) {
+            toReturn = game.readyLeave(hostID);
+        } else if (state == Blackjack.Game.State.BETTING_PHASE) {
+            toReturn = game.bettingPhaseEnd(hostID);
+        } else if (state == Blackjack.Game.State.IN_GAME) {
+            toReturn = game.inGameEnd(hostID);
+        } else if (state == Blackjack.Game.State.RESULTS) {
+            toReturn = game.resultsEnd(hostID);
+        }
+        // the host may have lost everything and left, and then nobody can end the table anymore
+        if (game.getState() != Blackjack.Game.State.FINISHED) {
+            game.deleteGame();
+        }
+        return toReturn;
+    }
+
+    // the session rolls for the games after the ones the session before rolled for
+    private static void playChallengeSession(long userID, long firstEntry) {
+        RandomChallenge.createOutputMessage(userID);
+        RandomChallenge.OutputMessage outputMessage = RandomChallenge.getOutputMessageOfUser(userID);
+        for (int roll = 0; roll < ROLLS; roll++) {
+            outputMessage.readySelectGame(RandomChallenge.entries[(int) ((firstEntry + roll) % RandomChallenge.entries.length)].GAME);
+            outputMessage.readyGetChallenge();
+            outputMessage.resultsReset();
+        }
+        return;
+    }
+}
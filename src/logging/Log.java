@@ -0,0 +1,193 @@
+package logging;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import unrelibrary.formatting.GeneralFormatter;
+
+// the bot's errors go through here instead of straight to GeneralFormatter.printException, so that the thread that had the error never waits for the console.
+// error only puts the error into a preallocated ring of CAPACITY entries, which is a compare and set and a few field writes, and a daemon thread prints it.
+// if the writer falls so far behind that the ring is full, errors are dropped and counted, since waiting for the console is what this is there to avoid.
+// the same error, by message and exception class, is printed at most REPEATS times per REPEAT_WINDOW_MILLIS. the rest of the window is only counted,
+// and the count is printed once the window is over. so a burst of failing rest requests prints a handful of lines and not thousands.
+// errors that are handled by ignoring them on purpose aren't printed at all, but they're counted by name with swallowed, see getSummary.
+public class Log {
+    private static final int CAPACITY = 1 << 10; // a power of two, so the slot of a sequence number is a mask
+    private static final int REPEATS = 3;
+    private static final long REPEAT_WINDOW_MILLIS = 10000;
+    private static final long IDLE_NANOS = 100 * 1000000L; // how long the writer sleeps if nobody wakes it up, so ended windows still get their count printed
+
+    public static final LongAdder LOGGED = new LongAdder();
+    public static final LongAdder SUPPRESSED = new LongAdder();
+    public static final LongAdder DROPPED = new LongAdder();
+    private static final Map<String, LongAdder> nameToSwallowed = new ConcurrentHashMap<String, LongAdder>();
+
+    private static final Entry[] ring = new Entry[CAPACITY];
+    private static final AtomicLong claimed = new AtomicLong(0); // the sequence number of the next entry
+    private static volatile long written = 0; // the sequence number of the next entry the writer prints. the slots before it can be reused.
+    private static volatile boolean writerSleeping = false;
+    private static final Thread writer;
+
+    // a slot of the ring. the fields belong to the error that claimed the slot until the writer is done with it.
+    private static class Entry {
+        private volatile long sequence = -1; // written last, so once it matches, the other fields are there
+        private long timeMillis;
+        private String threadName;
+        private String message;
+        private Exception exception;
+    }
+
+    // the writer's count of an error within its current window
+    private static class Repeat {
+        private final String DESCRIPTION;
+        private final long WINDOW_START_MILLIS;
+        private int printed = 0;
+        private long suppressed = 0;
+
+        private Repeat(String description, long windowStartMillis) {
+            this.DESCRIPTION = description;
+            this.WINDOW_START_MILLIS = windowStartMillis;
+        }
+    }
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Entry();
+        }
+        writer = Thread.ofPlatform().daemon().name("Log writer").start(Log::run);
+    }
+
+    // never waits. the message should be the same for every time the same thing fails, since that's what repeats are recognized by.
+    public static void error(String message, Exception exception) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - written >= CAPACITY) {
+                DROPPED.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        Entry entry = ring[(int) sequence & (CAPACITY - 1)];
+        entry.timeMillis = System.currentTimeMillis();
+        entry.threadName = Thread.currentThread().getName();
+        entry.message = message;
+        entry.exception = exception;
+        entry.sequence = sequence;
+        if (writerSleeping) {
+            LockSupport.unpark(writer);
+        }
+        return;
+    }
+
+    // for errors that are ignored on purpose. they're only counted.
+    public static void swallowed(String name) {
+        LongAdder count = nameToSwallowed.get(name);
+        if (count == null) {
+            count = nameToSwallowed.computeIfAbsent(name, key -> new LongAdder());
+        }
+        count.increment();
+        return;
+    }
+
+    // waits until everything that was logged before is printed, or until the timeout. returns whether it was.
+    public static boolean flush(long timeoutMillis) {
+        long target = claimed.get();
+        long deadlineNanos = System.nanoTime() + timeoutMillis * 1000000L;
+        while (written < target) {
+            if (System.nanoTime() >= deadlineNanos) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(1000000L);
+        }
+        return true;
+    }
+
+    public static String getSummary() {
+        StringBuilder toReturnBuilder = new StringBuilder();
+        toReturnBuilder.append(LOGGED.sum()).append(" logged, ").append(SUPPRESSED.sum()).append(" repeats suppressed, ").append(DROPPED.sum()).append(" dropped");
+        Map<String, LongAdder> sortedSwallowed = new TreeMap<String, LongAdder>(nameToSwallowed);
+        for (Map.Entry<String, LongAdder> swallowed : sortedSwallowed.entrySet()) {
+            toReturnBuilder.append(", ").append(swallowed.getKey()).append(" swallowed ").append(swallowed.getValue().sum());
+        }
+        return toReturnBuilder.toString();
+    }
+
+    private static void run() {
+        Map<String, Repeat> keyToRepeat = new HashMap<String, Repeat>();
+        while (true) {
+            long sequence = written;
+            Entry entry = ring[(int) sequence & (CAPACITY - 1)];
+            if (entry.sequence != sequence) {
+                // nothing to print, or the error that claimed the slot is still filling it in
+                endWindows(keyToRepeat, System.currentTimeMillis());
+                writerSleeping = true;
+                if (entry.sequence != sequence) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+                writerSleeping = false;
+                continue;
+            }
+            long timeMillis = entry.timeMillis;
+            String threadName = entry.threadName;
+            String message = entry.message;
+            Exception exception = entry.exception;
+            entry.message = null;
+            entry.exception = null;
+            written = sequence + 1;
+            print(keyToRepeat, timeMillis, threadName, message, exception);
+        }
+    }
+
+    private static void print(Map<String, Repeat> keyToRepeat, long timeMillis, String threadName, String message, Exception exception) {
+        String key = exception == null ? message : message + exception.getClass().getName();
+        Repeat repeat = keyToRepeat.get(key);
+        if (repeat == null || timeMillis - repeat.WINDOW_START_MILLIS >= REPEAT_WINDOW_MILLIS) {
+            if (repeat != null) {
+                endWindow(repeat);
+            }
+            repeat = new Repeat(exception == null ? message : message + "(" + exception.getClass().getSimpleName() + ")", timeMillis);
+            keyToRepeat.put(key, repeat);
+        }
+        if (repeat.printed >= REPEATS) {
+            repeat.suppressed++;
+            SUPPRESSED.increment();
+            return;
+        }
+        repeat.printed++;
+        LOGGED.increment();
+        String prefix = Instant.ofEpochMilli(timeMillis) + " [" + threadName + "] " + message;
+        if (exception == null) {
+            System.out.println(prefix);
+        } else {
+            GeneralFormatter.printException(prefix, exception);
+        }
+        return;
+    }
+
+    private static void endWindows(Map<String, Repeat> keyToRepeat, long nowMillis) {
+        Iterator<Map.Entry<String, Repeat>> iterator = keyToRepeat.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Repeat> next = iterator.next();
+            if (nowMillis - next.getValue().WINDOW_START_MILLIS >= REPEAT_WINDOW_MILLIS) {
+                endWindow(next.getValue());
+                iterator.remove();
+            }
+        }
+        return;
+    }
+
+    private static void endWindow(Repeat repeat) {
+        if (repeat.suppressed > 0) {
+            System.out.println(Instant.ofEpochMilli(System.currentTimeMillis()) + " [" + writer.getName() + "] " + repeat.DESCRIPTION + " happened " + repeat.suppressed + " more times within " + (REPEAT_WINDOW_MILLIS / 1000) + "s");
+        }
+        return;
+    }
+}
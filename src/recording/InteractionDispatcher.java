@@ -0,0 +1,117 @@
+package recording;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import commands.games.Blackjack;
+import commands.utility.RandomChallenge;
+
+// applies interaction records, as InteractionRecorder writes them, to the games and challenge messages of this process.
+// the records name their games and messages by the ids they had where they were recorded, so those are mapped to the ones created here.
+// this is used by InteractionReplayer.
+// records for different targets can be dispatched from several threads. records for the same target have to come in order.
+public class InteractionDispatcher {
+    private final boolean FORGET_FINISHED; // a long running process forgets games once they're over, a replay keeps them for its digest
+    private final Map<Long, Blackjack.Game> idToGame = new ConcurrentHashMap<Long, Blackjack.Game>(); // by the ids in the records
+    private final Map<Long, RandomChallenge.OutputMessage> idToOutputMessage = new ConcurrentHashMap<Long, RandomChallenge.OutputMessage>();
+
+    public InteractionDispatcher(boolean forgetFinished) {
+        this.FORGET_FINISHED = forgetFinished;
+    }
+
+    // returns false if the target wasn't created by an earlier record, which means the records don't fit this process
+    public boolean dispatch(byte kind, long target, long userID, long number, String text, String secondText, String thirdText) {
+        if (kind == InteractionRecorder.BLACKJACK_CREATE) {
+            Blackjack.Game game = Blackjack.createGame(text, (int) number, userID, secondText, thirdText);
+            game.call(game::openResponse);
+            idToGame.put(target, game);
+            return true;
+        } else if (kind == InteractionRecorder.CHALLENGE_CREATE) {
+            idToOutputMessage.put(target, RandomChallenge.createAndGetOutputMessage(userID, number));
+            return true;
+        }
+        if (kind < InteractionRecorder.CHALLENGE_CREATE) {
+            Blackjack.Game game = idToGame.get(target);
+            if (game == null) {
+                return false;
+            }
+            // the game's mailbox is used just like by the bot
+            boolean known = game.call(() -> dispatchToGame(game, kind, userID, text, secondText));
+            if (FORGET_FINISHED && game.call(game::getState) == Blackjack.Game.State.FINISHED) {
+                idToGame.remove(target);
+            }
+            return known;
+        } else {
+            RandomChallenge.OutputMessage outputMessage = idToOutputMessage.get(target);
+            if (outputMessage == null) {
+                return false;
+            }
+            switch (kind) {
+                case InteractionRecorder.CHALLENGE_SELECT: outputMessage.readySelectGame(text); break;
+                case InteractionRecorder.CHALLENGE_GET: outputMessage.readyGetChallenge(); break;
+                case InteractionRecorder.CHALLENGE_RESET: outputMessage.resultsReset(); break;
+                case InteractionRecorder.CHALLENGE_SELF_DESTRUCT: outputMessage.selfDestruct(userID, number); break;
+                default: return false;
+            }
+            return true;
+        }
+    }
+
+    private boolean dispatchToGame(Blackjack.Game game, byte kind, long userID, String text, String secondText) {
+        switch (kind) {
+            case InteractionRecorder.BLACKJACK_READY_JOIN: game.readyJoin(userID, text, secondText); break;
+            case InteractionRecorder.BLACKJACK_READY_LEAVE: game.readyLeave(userID); break;
+            case InteractionRecorder.BLACKJACK_READY_START: game.readyStart(userID); break;
+            case InteractionRecorder.BLACKJACK_READY_ADD_BOT: game.readyAddBot(userID); break;
+            case InteractionRecorder.BLACKJACK_BET_BUTTON: game.bettingPhaseBetButton(userID); break;
+            case InteractionRecorder.BLACKJACK_BET_MODAL: game.bettingPhaseBetModal(userID, text); break;
+            case InteractionRecorder.BLACKJACK_BETTING_END: game.bettingPhaseEnd(userID); break;
+            case InteractionRecorder.BLACKJACK_BETTING_LEAVE: game.bettingPhaseLeave(userID); break;
+            case InteractionRecorder.BLACKJACK_HIT: game.inGameHit(userID); break;
+            case InteractionRecorder.BLACKJACK_STAND: game.inGameStand(userID); break;
+            case InteractionRecorder.BLACKJACK_DOUBLE_DOWN: game.inGameDoubleDown(userID); break;
+            case InteractionRecorder.BLACKJACK_HINT: game.inGameHint(userID); break;
+            case InteractionRecorder.BLACKJACK_IN_GAME_LEAVE: game.inGameLeave(userID); break;
+            case InteractionRecorder.BLACKJACK_IN_GAME_END: game.inGameEnd(userID); break;
+            case InteractionRecorder.BLACKJACK_READY_UP: game.resultsReadyUp(userID); break;
+            case InteractionRecorder.BLACKJACK_RESULTS_LEAVE: game.resultsLeave(userID); break;
+            case InteractionRecorder.BLACKJACK_RESULTS_END: game.resultsEnd(userID); break;
+            case InteractionRecorder.BLACKJACK_GAME_TIMEOUT: game.timeOut(); break;
+            case InteractionRecorder.BLACKJACK_BET_TIMEOUT: game.autoSkipBet(userID); break;
+            case InteractionRecorder.BLACKJACK_MOVE_TIMEOUT: game.autoStand(userID); break;
+            case InteractionRecorder.BLACKJACK_READY_UP_TIMEOUT: game.autoReadyUp(userID); break;
+            case InteractionRecorder.BLACKJACK_READY_TOGGLE_SHUFFLE: game.readyToggleShuffle(userID); break;
+            default: return false;
+        }
+        return true;
+    }
+
+    // what an interaction changed, as a number: the state of the game or message, and the acting participant's money and cards
+    public long getDigestValue(byte kind, long target, long userID) {
+        long toReturn = kind;
+        if (kind < InteractionRecorder.CHALLENGE_CREATE) {
+            Blackjack.Game game = idToGame.get(target);
+            if (game != null) {
+                toReturn = toReturn * 31 + game.call(() -> getGameDigestValue(game, userID));
+            }
+        } else {
+            RandomChallenge.OutputMessage outputMessage = idToOutputMessage.get(target);
+            if (outputMessage != null) {
+                toReturn = toReturn * 31 + outputMessage.getState().ordinal();
+                toReturn = toReturn * 31 + (outputMessage.result == null ? 0 : outputMessage.result.hashCode());
+            }
+        }
+        return toReturn;
+    }
+
+    private long getGameDigestValue(Blackjack.Game game, long userID) {
+        long toReturn = game.getState().ordinal();
+        Blackjack.Game.Participant participant = game.getParticipantByUserID(userID);
+        if (participant != null) {
+            toReturn = toReturn * 31 + participant.currency;
+            toReturn = toReturn * 31 + participant.bet;
+            toReturn = toReturn * 31 + participant.hand.size();
+        }
+        return toReturn;
+    }
+}
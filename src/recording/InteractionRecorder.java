@@ -0,0 +1,181 @@
+package recording;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import commands.games.Blackjack;
+import commands.utility.RandomChallenge;
+import logging.Log;
+
+// records every interaction that reaches the blackjack and random challenge handlers into a binary trace, see InteractionReplayer.
+// recording is opt-in. while it's off, recording an interaction is a single volatile read.
+// when recording starts, both commands get fresh random seeds that are written into the header. every game and every challenge message
+// draws its own random from those when it's created, so replaying the trace in order reproduces the same cards and challenges.
+// interactions are recorded from the mailbox of the game, or while holding the lock of the message, that they change, so the trace has the order they really happened in.
+// the trace starts with a header: magic, version, blackjack seed, random challenge seed, start time in epoch millis.
+// then every record is: kind (byte), nanos since the last record (var long), target id (long), user id (long), number (var long),
+// a byte with one bit for every text that is present, and the present texts.
+public class InteractionRecorder {
+    public static final int MAGIC = 0x51545243; // "QTRC"
+    public static final int VERSION = 1;
+
+    // blackjack. the target is the game's id.
+    public static final byte BLACKJACK_CREATE = 1; // number: decks, texts: name, host name, host avatar
+    public static final byte BLACKJACK_READY_JOIN = 2; // texts: global name, avatar
+    public static final byte BLACKJACK_READY_LEAVE = 3;
+    public static final byte BLACKJACK_READY_START = 4;
+    public static final byte BLACKJACK_READY_ADD_BOT = 5;
+    public static final byte BLACKJACK_BET_BUTTON = 6;
+    public static final byte BLACKJACK_BET_MODAL = 7; // texts: input
+    public static final byte BLACKJACK_BETTING_END = 8;
+    public static final byte BLACKJACK_BETTING_LEAVE = 9;
+    public static final byte BLACKJACK_HIT = 10;
+    public static final byte BLACKJACK_STAND = 11;
+    public static final byte BLACKJACK_DOUBLE_DOWN = 12;
+    public static final byte BLACKJACK_HINT = 13;
+    public static final byte BLACKJACK_IN_GAME_LEAVE = 14;
+    public static final byte BLACKJACK_IN_GAME_END = 15;
+    public static final byte BLACKJACK_READY_UP = 16;
+    public static final byte BLACKJACK_RESULTS_LEAVE = 17;
+    public static final byte BLACKJACK_RESULTS_END = 18;
+    public static final byte BLACKJACK_GAME_TIMEOUT = 19; // timeouts have no user id, except for the participant they belong to
+    public static final byte BLACKJACK_BET_TIMEOUT = 20;
+    public static final byte BLACKJACK_MOVE_TIMEOUT = 21;
+    public static final byte BLACKJACK_READY_UP_TIMEOUT = 22;
+    public static final byte BLACKJACK_READY_TOGGLE_SHUFFLE = 23;
+    // random challenge. the target is the output message's id.
+    public static final byte CHALLENGE_CREATE = 40; // number: guild id
+    public static final byte CHALLENGE_SELECT = 41; // texts: game
+    public static final byte CHALLENGE_GET = 42;
+    public static final byte CHALLENGE_RESET = 43;
+    public static final byte CHALLENGE_SELF_DESTRUCT = 44; // user id: channel id, number: message id
+
+    private static volatile InteractionRecorder active = null;
+
+    private final DataOutputStream output;
+    private long lastNanos;
+    private boolean closed = false; // an interaction can still get here right after stop
+
+    private InteractionRecorder(String file, long blackjackSeed, long challengeSeed) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(blackjackSeed);
+        output.writeLong(challengeSeed);
+        output.writeLong(System.currentTimeMillis());
+        lastNanos = System.nanoTime();
+    }
+
+    // this has to be called before the first interaction, since it reseeds both commands
+    public static synchronized void start(String file) throws IOException {
+        stop();
+        Random random = new Random();
+        long blackjackSeed = random.nextLong();
+        long challengeSeed = random.nextLong();
+        InteractionRecorder recorder = new InteractionRecorder(file, blackjackSeed, challengeSeed);
+        Blackjack.setSeed(blackjackSeed);
+        RandomChallenge.setSeed(challengeSeed);
+        active = recorder;
+        return;
+    }
+
+    public static synchronized void stop() {
+        InteractionRecorder recorder = active;
+        active = null;
+        if (recorder != null) {
+            recorder.close();
+        }
+        return;
+    }
+
+    public static boolean isRecording() {
+        return active != null;
+    }
+
+    public static void record(byte kind, long target, long userID) {
+        InteractionRecorder recorder = active;
+        if (recorder != null) {
+            recorder.write(kind, target, userID, 0, null, null, null);
+        }
+        return;
+    }
+
+    public static void record(byte kind, long target, long userID, long number, String text, String secondText, String thirdText) {
+        InteractionRecorder recorder = active;
+        if (recorder != null) {
+            recorder.write(kind, target, userID, number, text, secondText, thirdText);
+        }
+        return;
+    }
+
+    private synchronized void write(byte kind, long target, long userID, long number, String text, String secondText, String thirdText) {
+        if (closed) {
+            return;
+        }
+        try {
+            long nanos = System.nanoTime();
+            output.writeByte(kind);
+            writeVarLong(output, nanos - lastNanos);
+            lastNanos = nanos;
+            output.writeLong(target);
+            output.writeLong(userID);
+            writeVarLong(output, number);
+            output.writeByte((text != null ? 1 : 0) | (secondText != null ? 2 : 0) | (thirdText != null ? 4 : 0));
+            if (text != null) {
+                output.writeUTF(text);
+            }
+            if (secondText != null) {
+                output.writeUTF(secondText);
+            }
+            if (thirdText != null) {
+                output.writeUTF(thirdText);
+            }
+        } catch (IOException ioException) {
+            Log.error("Couldn't write the interaction trace, recording stops. ", ioException);
+            if (active == this) {
+                active = null;
+            }
+            close();
+        }
+        return;
+    }
+
+    private synchronized void close() {
+        closed = true;
+        try {
+            output.close();
+        } catch (IOException ioException) {
+            Log.error("Couldn't close the interaction trace. ", ioException);
+        }
+        return;
+    }
+
+    // zigzag encoded, so small negative numbers stay small too
+    static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            output.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        output.writeByte((int) zigzag);
+        return;
+    }
+
+    static long readVarLong(DataInputStream input) throws IOException {
+        long zigzag = 0;
+        int shift = 0;
+        while (true) {
+            int next = input.readUnsignedByte();
+            zigzag |= ((long) (next & 0x7F)) << shift;
+            if ((next & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
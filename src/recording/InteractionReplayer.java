@@ -0,0 +1,134 @@
+package recording;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+
+import commands.games.BasicStrategy;
+import commands.games.Blackjack;
+import commands.utility.RandomChallenge;
+import loadtest.LatencyHistogram;
+import loadtest.LocalRestEndpoints;
+
+// feeds a trace written by InteractionRecorder back through the handlers. this is run locally, not by the bot:
+// java recording.InteractionReplayer [trace file] [challenge file] [strategy file]
+// the challenge and strategy files have to be the ones the bot had loaded while recording, and so do the guilds' own catalogs in ./data/challenges.
+// everything runs on one thread in the order of the trace and as fast as possible. timeouts only happen where the trace says they did.
+// the report has the cpu time, allocated bytes and latency percentiles of the handlers, and a digest of the resulting game states.
+// two builds that replay the same trace to the same digest behaved the same, so their numbers can be compared.
+public class InteractionReplayer {
+    private DataInputStream input;
+    private final InteractionDispatcher dispatcher = new InteractionDispatcher(false);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private long digest = 1;
+    private long events = 0;
+    private long unknownTargets = 0; // games or messages that the replay didn't create, which means it diverged from the recording
+    private long recordedNanos = 0;
+
+    // one record of the trace
+    private byte kind;
+    private long target;
+    private long userID;
+    private long number;
+    private String text;
+    private String secondText;
+    private String thirdText;
+
+    public static void main(String[] args) throws IOException {
+        String traceFile = args.length > 0 ? args[0] : "./data/interactions.trace";
+        String challengeFile = args.length > 1 ? args[1] : "./data/challenges.json";
+        String strategyFile = args.length > 2 ? args[2] : "./data/basicstrategy.txt";
+        try {
+            RandomChallenge.loadEntries(challengeFile);
+        } catch (Exception exception) {
+            System.out.println("Couldn't load " + challengeFile + ", challenge interactions will fail.");
+        }
+        try {
+            BasicStrategy.loadTables(strategyFile);
+        } catch (Exception exception) {
+            System.out.println("Couldn't load " + strategyFile + ", bots will fail.");
+        }
+        InteractionReplayer replayer = new InteractionReplayer();
+        replayer.replay(traceFile);
+        return;
+    }
+
+    public void replay(String traceFile) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(traceFile), 1 << 16));
+        try {
+            if (input.readInt() != InteractionRecorder.MAGIC || input.readInt() != InteractionRecorder.VERSION) {
+                throw new IOException(traceFile + " isn't a trace of this version");
+            }
+            Blackjack.setSeed(input.readLong());
+            RandomChallenge.setSeed(input.readLong());
+            long startEpochMillis = input.readLong();
+            Blackjack.setTimeoutsEnabled(false);
+            RandomChallenge.setRestEndpoints(new LocalRestEndpoints(0));
+            System.out.println("Replaying " + traceFile + ", recorded at " + new Date(startEpochMillis));
+
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long cpuBefore = threadMXBean.getCurrentThreadCpuTime();
+            long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+            long startNanos = System.nanoTime();
+            while (readRecord()) {
+                long eventStartNanos = System.nanoTime();
+                dispatch();
+                latencies.record(System.nanoTime() - eventStartNanos);
+                updateDigest();
+                events++;
+            }
+            long wallNanos = System.nanoTime() - startNanos;
+            long cpuNanos = threadMXBean.getCurrentThreadCpuTime() - cpuBefore;
+            long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            System.out.println("Events: " + events + " (" + unknownTargets + " with unknown targets)");
+            System.out.println("Recorded over " + LatencyHistogram.formatNanos(recordedNanos) + ", replayed in " + LatencyHistogram.formatNanos(wallNanos));
+            System.out.println("Cpu time: " + LatencyHistogram.formatNanos(cpuNanos) + " (" + (events == 0 ? 0 : cpuNanos / events) + "ns per event)");
+            System.out.println("Allocated: " + (allocatedBytes / 1024) + "KiB (" + (events == 0 ? 0 : allocatedBytes / events) + " bytes per event)");
+            System.out.println("Latency: " + latencies.getSummary());
+            System.out.println("Digest: " + Long.toHexString(digest));
+        } finally {
+            input.close();
+        }
+        return;
+    }
+
+    private boolean readRecord() throws IOException {
+        int nextKind = input.read();
+        if (nextKind == -1) {
+            return false;
+        }
+        try {
+            kind = (byte) nextKind;
+            recordedNanos += InteractionRecorder.readVarLong(input);
+            target = input.readLong();
+            userID = input.readLong();
+            number = InteractionRecorder.readVarLong(input);
+            int texts = input.readUnsignedByte();
+            text = (texts & 1) != 0 ? input.readUTF() : null;
+            secondText = (texts & 2) != 0 ? input.readUTF() : null;
+            thirdText = (texts & 4) != 0 ? input.readUTF() : null;
+        } catch (EOFException eofException) {
+            // the bot stopped in the middle of a record
+            return false;
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        if (!dispatcher.dispatch(kind, target, userID, number, text, secondText, thirdText)) {
+            unknownTargets++;
+        }
+        return;
+    }
+
+    // folds what the event changed into the digest
+    private void updateDigest() {
+        digest = digest * 0x9E3779B97F4A7C15L + dispatcher.getDigestValue(kind, target, userID);
+        return;
+    }
+}
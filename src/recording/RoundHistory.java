@@ -0,0 +1,315 @@
+package recording;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import commands.games.PlayingCard;
+import logging.Log;
+
+// appends the result of every finished blackjack round to a columnar file for offline analysis, see RoundHistoryScanner.
+// like InteractionRecorder, this is opt-in, and while it's off, publishing a round is a single volatile read.
+// the games only put their rounds into a bounded queue and never wait for the file. if the writer falls behind so far that the queue is full, rounds are dropped and counted.
+// every row is one seat in one round. the writer collects rows into blocks of up to BLOCK_ROWS, or whatever came in within FLUSH_MILLIS,
+// and writes every column of a block compressed on its own, so a scan only inflates the columns it needs.
+// the file starts with magic and version. every block is: its length in bytes after this int, the number of rows,
+// and for every column in the order of the column constants: raw length, compressed length, the deflated bytes.
+// a block is written in one piece, so a file that was cut off only loses its last block.
+// an existing file is cut back to the end of its last complete block before anything is appended, so the blocks of the next run don't end up behind a fragment.
+public class RoundHistory {
+    public static final int MAGIC = 0x51524853; // "QRHS"
+    public static final int VERSION = 1;
+    // the columns. rounds and times are var long deltas to the row before, hands are a byte with the number of cards and then their codes.
+    public static final int ROUND = 0; // a sequence number of the round since the history was started
+    public static final int TIME = 1; // epoch millis
+    public static final int GAME_ID = 2; // long
+    public static final int USER_ID = 3; // long. bots have negative ids.
+    public static final int BOT = 4; // byte
+    public static final int BET = 5; // int
+    public static final int OUTCOME = 6; // byte, see the outcome constants
+    public static final int DELTA = 7; // int, what the seat won or lost
+    public static final int BALANCE = 8; // int, the seat's currency after the round
+    public static final int HAND = 9;
+    public static final int DEALER_HAND = 10;
+    public static final int COLUMNS = 11;
+    public static final String[] COLUMN_NAMES = new String[] {"round", "time", "game id", "user id", "bot", "bet", "outcome", "delta", "balance", "hand", "dealer hand"};
+    // outcomes
+    public static final byte WIN = 0;
+    public static final byte BLACKJACK = 1; // paid 3:2
+    public static final byte PUSH = 2;
+    public static final byte LOSE = 3;
+    public static final byte BUST = 4;
+    public static final String[] OUTCOME_NAMES = new String[] {"win", "blackjack", "push", "lose", "bust"};
+
+    private static final int QUEUE_SIZE = 1 << 14; // rounds
+    private static final int BLOCK_ROWS = 1 << 15;
+    private static final long FLUSH_MILLIS = 1000; // so that a quiet bot still gets its rounds onto the disk
+    public static final LongAdder PUBLISHED = new LongAdder();
+    public static final LongAdder DROPPED = new LongAdder();
+    public static final LongAdder BLOCKS = new LongAdder();
+
+    private static volatile RoundHistory active = null;
+
+    private final FileOutputStream output;
+    private final BlockingQueue<Round> queue = new ArrayBlockingQueue<Round>(QUEUE_SIZE);
+    private final Thread writer;
+    private volatile boolean stopping = false;
+    private final ByteArrayOutputStream[] columnBytes = new ByteArrayOutputStream[COLUMNS];
+    private final DataOutputStream[] columns = new DataOutputStream[COLUMNS];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[1 << 16];
+    private int rows = 0;
+    private long round = 0;
+    private long lastRound = 0;
+    private long lastTimeMillis = 0;
+
+    // a finished round, copied out of the game so that the writer doesn't touch the game
+    public static class Round {
+        private final long GAME_ID;
+        private final long TIME_MILLIS;
+        private final byte[] DEALER_HAND;
+        private final long[] USER_IDS;
+        private final boolean[] BOTS;
+        private final int[] BETS;
+        private final byte[] OUTCOMES;
+        private final int[] DELTAS;
+        private final int[] BALANCES;
+        private final byte[][] HANDS;
+        private int seats = 0;
+
+        public Round(long gameID, List<PlayingCard> dealerHand, int maxSeats) {
+            this.GAME_ID = gameID;
+            this.TIME_MILLIS = System.currentTimeMillis();
+            this.DEALER_HAND = getCodes(dealerHand);
+            this.USER_IDS = new long[maxSeats];
+            this.BOTS = new boolean[maxSeats];
+            this.BETS = new int[maxSeats];
+            this.OUTCOMES = new byte[maxSeats];
+            this.DELTAS = new int[maxSeats];
+            this.BALANCES = new int[maxSeats];
+            this.HANDS = new byte[maxSeats][];
+        }
+
+        public void addSeat(long userID, boolean bot, int bet, byte outcome, int delta, int balance, List<PlayingCard> hand) {
+            USER_IDS[seats] = userID;
+            BOTS[seats] = bot;
+            BETS[seats] = bet;
+            OUTCOMES[seats] = outcome;
+            DELTAS[seats] = delta;
+            BALANCES[seats] = balance;
+            HANDS[seats] = getCodes(hand);
+            seats++;
+            return;
+        }
+
+        private static byte[] getCodes(List<PlayingCard> hand) {
+            byte[] toReturn = new byte[hand.size()];
+            int i = 0;
+            for (PlayingCard card : hand) {
+                toReturn[i++] = (byte) card.CODE;
+            }
+            return toReturn;
+        }
+    }
+
+    private RoundHistory(String file) throws IOException {
+        truncateToLastBlock(file);
+        output = new FileOutputStream(file, true);
+        // a new file gets the header, an existing one is appended to
+        if (output.getChannel().size() == 0) {
+            DataOutputStream header = new DataOutputStream(output);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.flush();
+        }
+        for (int column = 0; column < COLUMNS; column++) {
+            columnBytes[column] = new ByteArrayOutputStream(1 << 12);
+            columns[column] = new DataOutputStream(columnBytes[column]);
+        }
+        writer = Thread.ofPlatform().daemon().name("Round history writer").start(this::run);
+    }
+
+    // checks the header of an existing file and cuts off what's left of a block that the last run didn't finish.
+    // a file that isn't a round history of this version is left alone, and recording doesn't start.
+    private static void truncateToLastBlock(String file) throws IOException {
+        if (!Paths.get(file).toFile().exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < 8) {
+                // the last run didn't even get its header out, so the file starts over
+                channel.truncate(0);
+                return;
+            }
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " isn't a round history of this version");
+            }
+            ByteBuffer blockLength = ByteBuffer.allocate(4);
+            long end = 8; // of the last complete block
+            while (end + 4 <= size) {
+                blockLength.clear();
+                channel.read(blockLength, end);
+                int length = blockLength.getInt(0);
+                if (length < 4 || end + 4 + length > size) {
+                    break;
+                }
+                end += 4 + length;
+            }
+            if (end < size) {
+                channel.truncate(end);
+                System.out.println("Cut " + (size - end) + " bytes of an unfinished block off " + file);
+            }
+        }
+        return;
+    }
+
+    public static synchronized void start(String file) throws IOException {
+        stop();
+        active = new RoundHistory(file);
+        return;
+    }
+
+    // writes what's still queued before it returns
+    public static synchronized void stop() {
+        RoundHistory history = active;
+        active = null;
+        if (history != null) {
+            history.stopping = true;
+            try {
+                history.writer.join();
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return;
+    }
+
+    public static boolean isRecording() {
+        return active != null;
+    }
+
+    // called from the game's mailbox, so this never waits
+    public static void publish(Round round) {
+        RoundHistory history = active;
+        if (history != null) {
+            if (history.queue.offer(round)) {
+                PUBLISHED.increment();
+            } else {
+                DROPPED.increment();
+            }
+        }
+        return;
+    }
+
+    private void run() {
+        try {
+            long blockStartMillis = 0;
+            while (true) {
+                Round next = queue.poll(rows == 0 ? FLUSH_MILLIS : Math.max(1, blockStartMillis + FLUSH_MILLIS - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    if (rows == 0) {
+                        blockStartMillis = System.currentTimeMillis();
+                    }
+                    addRows(next);
+                }
+                if (rows >= BLOCK_ROWS || (rows > 0 && (next == null || System.currentTimeMillis() - blockStartMillis >= FLUSH_MILLIS))) {
+                    writeBlock();
+                }
+                if (next == null && stopping && queue.isEmpty()) {
+                    break;
+                }
+            }
+        } catch (IOException ioException) {
+            Log.error("Couldn't write the round history, it stops. ", ioException);
+            if (active == this) {
+                active = null;
+            }
+        } catch (InterruptedException interruptedException) {
+            // the daemon only gets interrupted when the process ends
+        }
+        try {
+            output.close();
+        } catch (IOException ioException) {
+            Log.error("Couldn't close the round history. ", ioException);
+        }
+        deflater.end();
+        return;
+    }
+
+    private void addRows(Round next) throws IOException {
+        for (int seat = 0; seat < next.seats; seat++) {
+            InteractionRecorder.writeVarLong(columns[ROUND], round - lastRound);
+            lastRound = round;
+            InteractionRecorder.writeVarLong(columns[TIME], next.TIME_MILLIS - lastTimeMillis);
+            lastTimeMillis = next.TIME_MILLIS;
+            columns[GAME_ID].writeLong(next.GAME_ID);
+            columns[USER_ID].writeLong(next.USER_IDS[seat]);
+            columns[BOT].writeByte(next.BOTS[seat] ? 1 : 0);
+            columns[BET].writeInt(next.BETS[seat]);
+            columns[OUTCOME].writeByte(next.OUTCOMES[seat]);
+            columns[DELTA].writeInt(next.DELTAS[seat]);
+            columns[BALANCE].writeInt(next.BALANCES[seat]);
+            columns[HAND].writeByte(next.HANDS[seat].length);
+            columns[HAND].write(next.HANDS[seat]);
+            columns[DEALER_HAND].writeByte(next.DEALER_HAND.length);
+            columns[DEALER_HAND].write(next.DEALER_HAND);
+            rows++;
+        }
+        round++;
+        return;
+    }
+
+    private void writeBlock() throws IOException {
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream block = new DataOutputStream(blockBytes);
+        block.writeInt(0); // the length, filled in below
+        block.writeInt(rows);
+        for (int column = 0; column < COLUMNS; column++) {
+            byte[] raw = columnBytes[column].toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    byte[] bigger = new byte[compressed.length * 2];
+                    System.arraycopy(compressed, 0, bigger, 0, length);
+                    compressed = bigger;
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            block.writeInt(raw.length);
+            block.writeInt(length);
+            block.write(compressed, 0, length);
+            columnBytes[column].reset();
+        }
+        byte[] bytes = blockBytes.toByteArray();
+        int blockLength = bytes.length - 4;
+        bytes[0] = (byte) (blockLength >>> 24);
+        bytes[1] = (byte) (blockLength >>> 16);
+        bytes[2] = (byte) (blockLength >>> 8);
+        bytes[3] = (byte) blockLength;
+        output.write(bytes);
+        output.flush();
+        rows = 0;
+        // every block starts its deltas from zero, so blocks can be read on their own
+        lastRound = 0;
+        lastTimeMillis = 0;
+        BLOCKS.increment();
+        return;
+    }
+}
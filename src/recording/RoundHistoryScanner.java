@@ -0,0 +1,150 @@
+package recording;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import loadtest.LatencyHistogram;
+
+// the win rates and payouts in a round history written by RoundHistory. this is run locally, not by the bot:
+// java recording.RoundHistoryScanner [history file]
+// only the bot, bet, outcome and delta columns are read. the others are skipped over in the file without being inflated.
+public class RoundHistoryScanner {
+    private static final int[] SCANNED_COLUMNS = new int[] {RoundHistory.BOT, RoundHistory.BET, RoundHistory.OUTCOME, RoundHistory.DELTA};
+
+    private final Inflater inflater = new Inflater();
+    private long blocks = 0;
+    private long inflatedBytes = 0;
+    // by bot (0 for users, 1 for bots)
+    private final long[] seats = new long[2];
+    private final long[][] outcomes = new long[2][RoundHistory.OUTCOME_NAMES.length];
+    private final long[] wagered = new long[2];
+    private final long[] net = new long[2];
+
+    public static void main(String[] args) throws IOException {
+        String historyFile = args.length > 0 ? args[0] : "./data/rounds.history";
+        RoundHistoryScanner scanner = new RoundHistoryScanner();
+        long startNanos = System.nanoTime();
+        long fileBytes = scanner.scan(historyFile);
+        long nanos = System.nanoTime() - startNanos;
+        System.out.println("Scanned " + scanner.blocks + " blocks, " + (scanner.seats[0] + scanner.seats[1]) + " seats in " + LatencyHistogram.formatNanos(nanos)
+            + ", inflated " + (scanner.inflatedBytes / 1024) + "KiB of a " + (fileBytes / 1024) + "KiB file");
+        for (int bot = 0; bot < 2; bot++) {
+            scanner.printSummary(bot == 0 ? "Users" : "Bots", bot);
+        }
+        return;
+    }
+
+    // returns the size of the file
+    public long scan(String historyFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(historyFile), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            readFully(channel, header);
+            if (header.getInt(0) != RoundHistory.MAGIC || header.getInt(4) != RoundHistory.VERSION) {
+                throw new IOException(historyFile + " isn't a round history of this version");
+            }
+            byte[][] columns = new byte[RoundHistory.COLUMNS][];
+            ByteBuffer blockHeader = ByteBuffer.allocate(8);
+            ByteBuffer columnHeader = ByteBuffer.allocate(8);
+            while (true) {
+                long blockStart = channel.position();
+                try {
+                    blockHeader.clear();
+                    readFully(channel, blockHeader);
+                    int blockLength = blockHeader.getInt(0);
+                    if (blockStart + 4 + blockLength > channel.size()) {
+                        break; // the bot stopped in the middle of the block
+                    }
+                    int rows = blockHeader.getInt(4);
+                    int scanned = 0;
+                    for (int column = 0; column < RoundHistory.COLUMNS; column++) {
+                        columnHeader.clear();
+                        readFully(channel, columnHeader);
+                        int rawLength = columnHeader.getInt(0);
+                        int compressedLength = columnHeader.getInt(4);
+                        if (scanned < SCANNED_COLUMNS.length && SCANNED_COLUMNS[scanned] == column) {
+                            ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+                            readFully(channel, compressed);
+                            columns[column] = inflate(compressed.array(), rawLength);
+                            scanned++;
+                        } else {
+                            channel.position(channel.position() + compressedLength);
+                        }
+                    }
+                    addBlock(rows, columns);
+                    blocks++;
+                } catch (EOFException eofException) {
+                    break;
+                }
+            }
+            return channel.size();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException();
+            }
+        }
+        return;
+    }
+
+    private byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        byte[] toReturn = new byte[rawLength];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                length += inflater.inflate(toReturn, length, rawLength - length);
+            }
+        } catch (DataFormatException dataFormatException) {
+            throw new IOException("a column is broken", dataFormatException);
+        }
+        inflatedBytes += rawLength;
+        return toReturn;
+    }
+
+    private void addBlock(int rows, byte[][] columns) throws IOException {
+        DataInputStream bets = new DataInputStream(new ByteArrayInputStream(columns[RoundHistory.BET]));
+        DataInputStream deltas = new DataInputStream(new ByteArrayInputStream(columns[RoundHistory.DELTA]));
+        for (int row = 0; row < rows; row++) {
+            int bot = columns[RoundHistory.BOT][row];
+            int bet = bets.readInt();
+            int delta = deltas.readInt();
+            seats[bot]++;
+            outcomes[bot][columns[RoundHistory.OUTCOME][row]]++;
+            wagered[bot] += bet;
+            net[bot] += delta;
+        }
+        return;
+    }
+
+    private void printSummary(String name, int bot) {
+        if (seats[bot] == 0) {
+            System.out.println(name + ": no seats");
+            return;
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append(": ").append(seats[bot]).append(" seats");
+        for (int outcome = 0; outcome < RoundHistory.OUTCOME_NAMES.length; outcome++) {
+            builder.append(", ").append(RoundHistory.OUTCOME_NAMES[outcome]).append(" ").append(String.format("%.2f", 100.0 * outcomes[bot][outcome] / seats[bot])).append("%");
+        }
+        builder.append("\n  wagered ").append(wagered[bot]).append(", net ").append(net[bot]);
+        if (wagered[bot] > 0) {
+            builder.append(", payout ").append(String.format("%.4f", (double) (wagered[bot] + net[bot]) / wagered[bot]));
+        }
+        System.out.println(builder.toString());
+        return;
+    }
+}
@@ -0,0 +1,23 @@
+package rest;
+
+import unrelibrary.DiscordBot;
+import unrelibrary.restapi.ServerResponseException;
+
+// passes every request straight on to discord
+public class DiscordRestEndpoints implements RestEndpoints {
+    private final DiscordBot DISCORD_BOT;
+
+    public DiscordRestEndpoints(DiscordBot discordBot) {
+        this.DISCORD_BOT = discordBot;
+    }
+
+    public void sendMessage(long channelID, String content) throws ServerResponseException {
+        DISCORD_BOT.apiCommunicationManager.restManager.sendMessage(channelID, content);
+        return;
+    }
+
+    public void deleteMessage(long channelID, long messageID) throws ServerResponseException {
+        DISCORD_BOT.apiCommunicationManager.restManager.deleteMessage(channelID, messageID);
+        return;
+    }
+}
@@ -0,0 +1,10 @@
+package rest;
+
+import unrelibrary.restapi.ServerResponseException;
+
+// the rest endpoints the commands use. this is implemented by DiscordRestEndpoints for the real bot, and by stand-ins for local tests.
+public interface RestEndpoints {
+    public void sendMessage(long channelID, String content) throws ServerResponseException;
+
+    public void deleteMessage(long channelID, long messageID) throws ServerResponseException;
+}
@@ -0,0 +1,265 @@
+package rest;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import logging.Log;
+
+import unrelibrary.restapi.ServerResponseException;
+
+// sends rest requests in the background, so that handlers never wait for discord. the requests are queued per route
+// (the endpoint and the channel, like discord's own buckets), and every route is drained by its own virtual thread while it has requests.
+// the rate limits are tracked locally: every route has a token bucket, and all routes share the global one. a request only goes out once
+// both have a token, so bursts are spread out instead of running into 429s. the rest manager doesn't show the rate limit headers,
+// so the buckets start out with discord's usual limits, and a 429 is taken as a sign that the route's bucket is empty.
+// only 429s and server errors are retried, with exponential backoff and jitter, or after discord's retry_after if the 429 says it. other errors,
+// like a 404 for a message that was deleted already, won't go away by trying again. messages that queue up for the same channel are sent as one.
+// every route's queue is bounded. when it's full, new requests are dropped and counted, instead of piling up while discord is slow.
+// a route that is idle and whose bucket has refilled is forgotten, since a new one would be the same, so there's no route for every channel ever used.
+public class RestQueue implements RestEndpoints {
+    private static final int ROUTE_CAPACITY = 5; // requests per ROUTE_WINDOW_MILLIS
+    private static final long ROUTE_WINDOW_MILLIS = 5000;
+    private static final int GLOBAL_CAPACITY = 50; // requests per second
+    private static final int MAX_QUEUED = 100; // per route
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BACKOFF_MILLIS = 500; // doubled for every attempt
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+    private static final long SWEEP_INTERVAL_NANOS = ROUTE_WINDOW_MILLIS * 1000000L; // how often idle routes are looked for
+    // the rest manager only passes on the response as the exception's message, so the status and discord's retry_after are read from there
+    private static final Pattern STATUS_PATTERN = Pattern.compile("\\b([45]\\d\\d)\\b");
+    private static final Pattern RETRY_AFTER_PATTERN = Pattern.compile("\"retry_after\"\\s*:\\s*(\\d+(?:\\.\\d+)?)");
+
+    public final LongAdder SENT = new LongAdder(); // requests that discord accepted
+    public final LongAdder BATCHED = new LongAdder(); // messages that were sent together with an earlier one
+    public final LongAdder RETRIED = new LongAdder();
+    public final LongAdder DROPPED = new LongAdder(); // because the route's queue was full
+    public final LongAdder FAILED = new LongAdder(); // after MAX_ATTEMPTS, or because discord refused the request
+    public final LongAdder EVICTED = new LongAdder(); // idle routes that were forgotten
+    private final RestEndpoints ENDPOINTS;
+    private final TokenBucket GLOBAL_BUCKET = new TokenBucket(GLOBAL_CAPACITY, 1000);
+    private final Map<String, Route> ROUTES = new ConcurrentHashMap<String, Route>();
+    private final AtomicInteger pending = new AtomicInteger(0); // queued and in flight
+    private final AtomicLong lastSweepNanos = new AtomicLong(System.nanoTime());
+
+    // a queued request. for messages, content is what gets sent and messageID is unused, and the other way around for deletions.
+    private static class Request {
+        private final long CHANNEL_ID;
+        private final long MESSAGE_ID;
+        private String content;
+        private int count = 1; // how many requests were batched into this one
+
+        private Request(long channelID, long messageID, String content) {
+            this.CHANNEL_ID = channelID;
+            this.MESSAGE_ID = messageID;
+            this.content = content;
+        }
+    }
+
+    private class Route {
+        private final String NAME;
+        private final TokenBucket BUCKET = new TokenBucket(ROUTE_CAPACITY, ROUTE_WINDOW_MILLIS);
+        private final ArrayDeque<Request> QUEUE = new ArrayDeque<Request>();
+        private boolean draining = false;
+        private boolean evicted = false; // requests for its name go to a new route then
+
+        private Route(String name) {
+            this.NAME = name;
+        }
+    }
+
+    public RestQueue(RestEndpoints endpoints) {
+        this.ENDPOINTS = endpoints;
+    }
+
+    public void sendMessage(long channelID, String content) {
+        enqueue("send " + channelID, new Request(channelID, 0, content));
+        return;
+    }
+
+    public void deleteMessage(long channelID, long messageID) {
+        enqueue("delete " + channelID, new Request(channelID, messageID, null));
+        return;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    // waits until everything that was queued is sent or given up on, or until the timeout. returns whether the queue is empty.
+    public boolean awaitIdle(long timeoutMillis) {
+        long deadlineNanos = System.nanoTime() + timeoutMillis * 1000000L;
+        while (pending.get() > 0 && System.nanoTime() < deadlineNanos) {
+            if (!sleep(10)) {
+                break;
+            }
+        }
+        return pending.get() == 0;
+    }
+
+    private void enqueue(String routeName, Request request) {
+        sweepIdleRoutes();
+        Route route = ROUTES.computeIfAbsent(routeName, Route::new);
+        boolean startDraining = false;
+        synchronized (route) {
+            if (route.evicted) {
+                // it was forgotten between getting it and locking it
+                enqueue(routeName, request);
+                return;
+            }
+            Request last = route.QUEUE.peekLast();
+            if (request.content != null && last != null && last.content.length() + 1 + request.content.length() <= MAX_MESSAGE_LENGTH) {
+                // a message that hasn't been sent yet takes this one along
+                last.content = last.content + "\n" + request.content;
+                last.count++;
+                pending.incrementAndGet();
+                return;
+            }
+            if (route.QUEUE.size() >= MAX_QUEUED) {
+                DROPPED.increment();
+                return;
+            }
+            route.QUEUE.addLast(request);
+            pending.incrementAndGet();
+            if (!route.draining) {
+                route.draining = true;
+                startDraining = true;
+            }
+        }
+        if (startDraining) {
+            Thread.ofVirtual().name("rest " + routeName).start(() -> drain(route));
+        }
+        return;
+    }
+
+    private void sweepIdleRoutes() {
+        long lastNanos = lastSweepNanos.get();
+        long nowNanos = System.nanoTime();
+        if (nowNanos - lastNanos < SWEEP_INTERVAL_NANOS || !lastSweepNanos.compareAndSet(lastNanos, nowNanos)) {
+            return;
+        }
+        for (Route route : ROUTES.values()) {
+            synchronized (route) {
+                if (!route.draining && route.QUEUE.isEmpty() && route.BUCKET.isFull()) {
+                    route.evicted = true;
+                    ROUTES.remove(route.NAME, route);
+                    EVICTED.increment();
+                }
+            }
+        }
+        return;
+    }
+
+    private void drain(Route route) {
+        while (true) {
+            Request request;
+            synchronized (route) {
+                request = route.QUEUE.pollFirst();
+                if (request == null) {
+                    route.draining = false;
+                    return;
+                }
+            }
+            send(route, request);
+            pending.addAndGet(-request.count);
+        }
+    }
+
+    private void send(Route route, Request request) {
+        for (int attempt = 1; ; attempt++) {
+            if (!waitForToken(route.BUCKET) || !waitForToken(GLOBAL_BUCKET)) {
+                FAILED.add(request.count);
+                return;
+            }
+            try {
+                if (request.content != null) {
+                    ENDPOINTS.sendMessage(request.CHANNEL_ID, request.content);
+                    BATCHED.add(request.count - 1);
+                } else {
+                    ENDPOINTS.deleteMessage(request.CHANNEL_ID, request.MESSAGE_ID);
+                }
+                SENT.increment();
+                return;
+            } catch (ServerResponseException serverResponseException) {
+                int status = getStatus(serverResponseException);
+                if (status == 404 && request.content == null) {
+                    // the message is gone already, which is all the deletion was for
+                    Log.swallowed("deleting a deleted message");
+                    return;
+                } else if (status != 429 && (status < 500 || status > 599)) {
+                    FAILED.add(request.count);
+                    Log.error("Discord refused a request on " + route.NAME + ". ", serverResponseException);
+                    return;
+                } else if (attempt >= MAX_ATTEMPTS) {
+                    FAILED.add(request.count);
+                    Log.error("Gave up on " + route.NAME + " after " + attempt + " attempts. ", serverResponseException);
+                    return;
+                }
+                RETRIED.increment();
+                long waitMillis;
+                long retryAfterMillis = getRetryAfterMillis(serverResponseException);
+                if (status == 429 && retryAfterMillis >= 0) {
+                    waitMillis = retryAfterMillis;
+                } else {
+                    if (status == 429) {
+                        // discord didn't say how long, so the route waits for a whole window before it tries again
+                        route.BUCKET.exhaust();
+                    }
+                    long backoffMillis = BACKOFF_MILLIS << (attempt - 1);
+                    // the jitter keeps routes that failed together from retrying together
+                    waitMillis = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis + 1);
+                }
+                if (!sleep(waitMillis)) {
+                    FAILED.add(request.count);
+                    return;
+                }
+            }
+        }
+    }
+
+    // returns 0 if the message doesn't have one
+    static int getStatus(ServerResponseException serverResponseException) {
+        String message = serverResponseException.getMessage();
+        if (message == null) {
+            return 0;
+        }
+        Matcher matcher = STATUS_PATTERN.matcher(message);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : 0;
+    }
+
+    // discord sends retry_after in seconds. returns -1 if the message doesn't have it.
+    static long getRetryAfterMillis(ServerResponseException serverResponseException) {
+        String message = serverResponseException.getMessage();
+        if (message == null) {
+            return -1;
+        }
+        Matcher matcher = RETRY_AFTER_PATTERN.matcher(message);
+        return matcher.find() ? (long) Math.ceil(Double.valueOf(matcher.group(1)) * 1000) : -1;
+    }
+
+    // returns false if the thread was interrupted
+    private static boolean waitForToken(TokenBucket bucket) {
+        for (long waitNanos = bucket.tryTake(); waitNanos > 0; waitNanos = bucket.tryTake()) {
+            if (!sleep(Math.max(1, waitNanos / 1000000))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+}
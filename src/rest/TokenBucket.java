@@ -0,0 +1,46 @@
+package rest;
+
+// a local estimate of one of discord's rate limit buckets: CAPACITY requests per WINDOW_NANOS, refilled evenly over the window
+public class TokenBucket {
+    public final int CAPACITY;
+    public final long WINDOW_NANOS;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(int capacity, long windowMillis) {
+        this.CAPACITY = capacity;
+        this.WINDOW_NANOS = windowMillis * 1000000L;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // takes a token if there is one. returns 0 if it did, or how many nanos to wait until there is one.
+    public synchronized long tryTake() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) ((1 - tokens) * WINDOW_NANOS / CAPACITY);
+    }
+
+    // called when discord probably said that the bucket is empty. the estimate was too optimistic, so nothing is sent until the window has passed.
+    public synchronized void exhaust() {
+        refill();
+        tokens = Math.min(tokens, 0) - CAPACITY + 1;
+        return;
+    }
+
+    // whether the bucket has refilled completely, so it's the same as a new one
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= CAPACITY;
+    }
+
+    private void refill() {
+        long nanos = System.nanoTime();
+        tokens = Math.min(CAPACITY, tokens + (double) (nanos - lastRefillNanos) * CAPACITY / WINDOW_NANOS);
+        lastRefillNanos = nanos;
+        return;
+    }
+}
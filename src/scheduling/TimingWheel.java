@@ -0,0 +1,163 @@
+package scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import logging.Log;
+
+// a hierarchical timing wheel for a large number of timeouts that are mostly cancelled before they run out.
+// scheduling and cancelling are O(1). one daemon thread advances the wheel every tick and runs the expired tasks.
+// the lowest level has one slot per tick, every level above has one slot per full turn of the level below.
+// timeouts in higher levels are moved down (cascaded) when the level below comes around to them.
+// tasks run on the ticking thread, outside of the wheel's lock, so they can schedule and cancel timeouts themselves.
+public class TimingWheel {
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4; // with 256 slots per level, this covers 2^32 ticks
+    private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    public final long TICK_MILLIS;
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS]; // the first timeout of every slot's doubly linked list
+    private final long startNanos;
+    private long currentTick = 0; // every timeout up to this tick has been handled
+    private int pending = 0;
+
+    public static class Timeout {
+        private final Runnable TASK;
+        private long deadlineTick;
+        private int level = -1; // -1 means that the timeout isn't in the wheel (anymore)
+        private int slot;
+        private Timeout previous = null;
+        private Timeout next = null;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.TASK = task;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    public TimingWheel(String name, long tickMillis) {
+        this.TICK_MILLIS = tickMillis;
+        this.startNanos = System.nanoTime();
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // runs the task on the wheel's thread after at least delayMillis
+    public synchronized Timeout schedule(Runnable task, long delayMillis) {
+        long delayTicks = Math.min(MAX_DELAY_TICKS - 1, Math.max(0, (delayMillis + TICK_MILLIS - 1) / TICK_MILLIS));
+        // the thread might not have handled the tick that has already started, so the delay counts from the end of that tick
+        long nowTick = Math.max(currentTick, (System.nanoTime() - startNanos) / 1000000L / TICK_MILLIS);
+        Timeout timeout = new Timeout(task, nowTick + 1 + delayTicks);
+        insert(timeout);
+        pending++;
+        return timeout;
+    }
+
+    // returns false if the timeout already ran out or was cancelled before. null is ignored.
+    public synchronized boolean cancel(Timeout timeout) {
+        if (timeout == null || timeout.level == -1) {
+            return false;
+        } else {
+            unlink(timeout);
+            pending--;
+            return true;
+        }
+    }
+
+    public synchronized int pendingTimeouts() {
+        return pending;
+    }
+
+    private void insert(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((timeout.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = slots[level][slot];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        slots[level][slot] = timeout;
+        return;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.level = -1;
+        return;
+    }
+
+    // advances the wheel by one tick and collects everything that ran out
+    private synchronized void advance(List<Runnable> expired) {
+        currentTick++;
+        // whenever a level completes a turn, the next slot of the level above is moved down
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timeout timeout = slots[level][slot];
+            slots[level][slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                insert(timeout);
+                timeout = next;
+            }
+        }
+        int slot = (int) (currentTick & SLOT_MASK);
+        Timeout timeout = slots[0][slot];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadlineTick <= currentTick) {
+                unlink(timeout);
+                pending--;
+                expired.add(timeout.TASK);
+            }
+            timeout = next;
+        }
+        return;
+    }
+
+    private void run() {
+        List<Runnable> expired = new ArrayList<Runnable>();
+        long handledTicks = 0;
+        while (true) {
+            long elapsedTicks = (System.nanoTime() - startNanos) / 1000000L / TICK_MILLIS;
+            // if the thread fell behind, catch up tick by tick so that nothing gets skipped
+            while (handledTicks < elapsedTicks) {
+                advance(expired);
+                handledTicks++;
+            }
+            for (Runnable task : expired) {
+                try {
+                    task.run();
+                } catch (Exception exception) {
+                    Log.error("A timeout failed. ", exception);
+                }
+            }
+            expired.clear();
+            try {
+                Thread.sleep(TICK_MILLIS);
+            } catch (InterruptedException interruptedException) {
+                return;
+            }
+        }
+    }
+}